@@ -0,0 +1,139 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a JSON Lines file of jobs in one JVM on a fixed pool. Each line is an object such as
+ *
+ * <pre>
+ *   {"id": "march", "input": "orders.csv", "threshold": 100, "summary": "out/summary.json", "high_value": "out/hv.csv"}
+ * </pre>
+ *
+ * where input and at least one of summary / high_value are required, threshold defaults to 100.0
+ * and id to the line number. One result line is written per job as it finishes, with its status
+ * (ok, no_valid_orders or error), row counts and how long it queued and ran.
+ */
+final class BatchRunner {
+    private final int workers;
+    private final OutputStream results;
+    private final AtomicInteger failed = new AtomicInteger();
+
+    BatchRunner(int workers, OutputStream results) {
+        this.workers = workers;
+        this.results = results;
+    }
+
+    /** Runs every job in {@code jobs}; returns the number that did not end with status ok. */
+    int run(Path jobs) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        // at most two jobs waiting per worker, so a huge jobs file is never held in memory
+        Semaphore slots = new Semaphore(workers * 2);
+        try (BufferedReader in = Files.newBufferedReader(jobs)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                String spec = line;
+                int n = lineNo;
+                long queued = System.nanoTime();
+                slots.acquire();
+                pool.execute(() -> {
+                    try {
+                        report(runJob(n, spec, queued));
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        return failed.get();
+    }
+
+    private Map<String, Object> runJob(int lineNo, String spec, long queued) {
+        long started = System.nanoTime();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", String.valueOf(lineNo));
+        result.put("line", lineNo);
+        RejectCounts rejects = new RejectCounts();
+        try {
+            if (!(JsonReader.parse(spec) instanceof Map<?, ?> job)) throw new IllegalArgumentException("Job must be a JSON object");
+            if (job.get("id") != null) result.put("id", String.valueOf(job.get("id")));
+            String input = string(job, "input");
+            if (input == null) throw new IllegalArgumentException("Missing input");
+            Object t = job.get("threshold");
+            if (t != null && !(t instanceof BigDecimal)) throw new IllegalArgumentException("threshold must be a number");
+            BigDecimal threshold = t == null ? new BigDecimal("100.0") : (BigDecimal) t;
+            String summary = string(job, "summary");
+            String highValue = string(job, "high_value");
+            if (summary == null && highValue == null) throw new IllegalArgumentException("Job writes nothing: set summary and/or high_value");
+            result.put("input", input);
+            createParent(summary);
+            createParent(highValue);
+            long valid = summary != null
+                    ? OrderProcessor.streamOrders(input, threshold, summary, highValue, rejects)
+                    : OrderProcessor.exportHighValue(input, threshold, highValue, false, rejects);
+            result.put("status", valid > 0 ? "ok" : "no_valid_orders");
+            result.put("valid_orders", valid);
+            result.put("rejected_rows", rejects.total());
+        } catch (NoSuchFileException e) {
+            result.put("status", "error");
+            result.put("error", "No such file: " + e.getMessage());
+        } catch (Exception e) {
+            result.put("status", "error");
+            result.put("error", e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        long finished = System.nanoTime();
+        result.put("queued_ms", millis(started - queued));
+        result.put("run_ms", millis(finished - started));
+        if (!"ok".equals(result.get("status"))) failed.incrementAndGet();
+        return result;
+    }
+
+    private void report(Map<String, Object> result) {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try {
+            try (JsonWriter w = new JsonWriter(line, true)) {
+                w.value(result);
+            }
+            synchronized (results) {
+                results.write(line.toByteArray());
+                results.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing result: " + e.getMessage());
+        }
+    }
+
+    private static String string(Map<?, ?> job, String key) {
+        Object v = job.get(key);
+        if (v != null && !(v instanceof String)) throw new IllegalArgumentException(key + " must be a string");
+        return (String) v;
+    }
+
+    private static void createParent(String file) throws IOException {
+        if (file == null) return;
+        Path parent = Paths.get(file).toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+}
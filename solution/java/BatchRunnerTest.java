@@ -0,0 +1,73 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class BatchRunnerTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testJobsRunAndReportOneLineEach() throws Exception {
+        Path csv = tmp.newFile("orders.csv").toPath();
+        Files.writeString(csv, "order_id,customer_id,category,unit_price,quantity,timestamp\n"
+                + "O1,C1,Books,12.50,2,t1\nO2,C2,Toys,150.00,1,t2\nO3,C3,Toys,oops,1,t3\n");
+        Path out = tmp.getRoot().toPath().resolve("out");
+        String c = jsonString(csv.toString()), s = jsonString(out.resolve("a/summary.json").toString());
+        String h = jsonString(out.resolve("b/hv.csv").toString());
+        Path jobs = tmp.newFile("jobs.jsonl").toPath();
+        Files.writeString(jobs, "{\"id\": \"a\", \"input\": " + c + ", \"summary\": " + s + "}\n"
+                + "{\"id\": \"b\", \"input\": " + c + ", \"threshold\": 20, \"high_value\": " + h + "}\n"
+                + "\n{\"id\": \"c\", \"input\": " + c + "}\n[1, 2]\n");
+
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        assertEquals(2, new BatchRunner(2, results).run(jobs));
+
+        Map<String, Map<?, ?>> byLine = new HashMap<>();
+        for (String line : results.toString(StandardCharsets.UTF_8).split("\n")) {
+            Map<?, ?> r = (Map<?, ?>) JsonReader.parse(line);
+            byLine.put(r.get("line").toString(), r);
+        }
+        assertEquals(4, byLine.size());
+        assertEquals("ok", byLine.get("1").get("status"));
+        assertEquals(new BigDecimal(2), byLine.get("1").get("valid_orders"));
+        assertEquals(new BigDecimal(1), byLine.get("1").get("rejected_rows"));
+        assertTrue(byLine.get("1").get("run_ms") instanceof BigDecimal);
+        assertEquals("ok", byLine.get("2").get("status"));
+        assertEquals("error", byLine.get("4").get("status"));
+        assertEquals("c", byLine.get("4").get("id"));
+        assertEquals("Job must be a JSON object", byLine.get("5").get("error"));
+        assertTrue(Files.readString(out.resolve("a/summary.json")).contains("\"total_revenue\": 175.0"));
+        assertEquals(3, Files.readAllLines(out.resolve("b/hv.csv")).size());
+    }
+
+    @Test
+    public void testJsonReaderRoundTrip() throws Exception {
+        Map<?, ?> m = (Map<?, ?>) JsonReader.parse(" {\"a\": [1, -2.5e1, true, null], \"b\\\"\": \"x\\u00e9\\n\", \"c\": {}} ");
+        assertEquals(Arrays.asList(new BigDecimal(1), new BigDecimal("-2.5e1"), true, null), m.get("a"));
+        assertEquals("xé\n", m.get("b\""));
+        assertEquals(Collections.emptyMap(), m.get("c"));
+        for (String bad : new String[]{"", "{", "{\"a\" 1}", "[1,]", "tru", "\"x", "{} x"}) {
+            try {
+                JsonReader.parse(bad);
+                fail(bad);
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage().startsWith("Invalid JSON at offset"));
+            }
+        }
+    }
+
+    private static String jsonString(String s) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter w = new JsonWriter(out, true)) {
+            w.value(s);
+        }
+        return out.toString(StandardCharsets.UTF_8).trim();
+    }
+}
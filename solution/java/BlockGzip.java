@@ -0,0 +1,317 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A splittable gzip container for order CSVs, in the spirit of BGZF. The file is a plain
+ * sequence of gzip members, so gunzip, and Gzip.inflateIfGzip
+ * (which MappedOrderFile puts in front of every input), read it like any .gz:
+ *
+ * <pre>
+ *   data member  x N   whole lines only (the header is in the first); extra subfield OC = member size
+ *   index member x M   empty; extra subfield OI = up to 4096 x (u64 member offset, u32 inflated size)
+ *   trailer member     empty, fixed 38 bytes; extra subfield OT = (u64 offset of the first index member, u32 N)
+ * </pre>
+ *
+ * All integers are little-endian, like the rest of gzip. Because no line crosses a member,
+ * each data member can be inflated and parsed on its own, which {@link #load} does in parallel.
+ */
+final class BlockGzip {
+    static final int DEFAULT_BLOCK = 1 << 20;
+    static final int TRAILER_SIZE = 38;
+    private static final int ENTRY = 12;
+    private static final int ENTRIES_PER_INDEX_MEMBER = 4096;
+    private static final int DATA_HEADER = 20;
+    // an empty raw deflate stream: one final fixed-Huffman block with no symbols
+    private static final byte[] EMPTY_DEFLATE = {0x03, 0x00};
+
+    private BlockGzip() {}
+
+    /**
+     * Compresses {@code input} into {@code output} in blocks of about {@code blockSize} bytes,
+     * each cut after a line end, deflating {@code threads} blocks at a time. Returns the block count.
+     */
+    static int write(Path input, Path output, int blockSize, int level, int threads) throws IOException {
+        if (blockSize < 1) throw new IllegalArgumentException("block size must be >= 1");
+        if (level < 1 || level > 9) throw new IllegalArgumentException("gzip level must be 1-9");
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (InputStream in = Files.newInputStream(input);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), 1 << 16)) {
+            Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+            long[] offsets = new long[64];
+            int[] sizes = new int[64];
+            int blocks = 0, drained = 0;
+            long written = 0;
+            byte[] carry = new byte[0];
+            int carried = 0;
+            boolean eof = false;
+            while (!eof) {
+                byte[] block = Arrays.copyOf(carry, carried < blockSize ? blockSize : 2 * carried);
+                int len = carried;
+                int n;
+                while (len < block.length && (n = in.read(block, len, block.length - len)) > 0) len += n;
+                eof = len < block.length;
+                int cut = len;
+                if (!eof) {
+                    cut = lastLf(block, len) + 1;
+                    if (cut == 0) { // a line longer than the block: keep reading until it ends
+                        carry = block;
+                        carried = len;
+                        continue;
+                    }
+                }
+                carried = len - cut;
+                carry = Arrays.copyOfRange(block, cut, len);
+                if (cut == 0) break;
+                int size = cut;
+                byte[] data = block;
+                if (blocks == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, blocks * 2);
+                    sizes = Arrays.copyOf(sizes, blocks * 2);
+                }
+                sizes[blocks++] = size;
+                inFlight.add(pool.submit(() -> dataMember(data, size, level)));
+                // members are written in order; at most two per thread wait in memory
+                if (inFlight.size() >= 2 * threads) written = writeMember(inFlight.poll(), out, offsets, drained++, written);
+            }
+            while (!inFlight.isEmpty()) written = writeMember(inFlight.poll(), out, offsets, drained++, written);
+
+            long indexOffset = written;
+            for (int from = 0; from < blocks; from += ENTRIES_PER_INDEX_MEMBER) {
+                int to = Math.min(blocks, from + ENTRIES_PER_INDEX_MEMBER);
+                ByteBuffer entries = ByteBuffer.allocate((to - from) * ENTRY).order(ByteOrder.LITTLE_ENDIAN);
+                for (int k = from; k < to; k++) entries.putLong(offsets[k]).putInt(sizes[k]);
+                out.write(emptyMember('O', 'I', entries.array()));
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN).putLong(indexOffset).putInt(blocks);
+            out.write(emptyMember('O', 'T', trailer.array()));
+            return blocks;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing " + input, e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long writeMember(Future<byte[]> member, OutputStream out, long[] offsets, int block, long written)
+            throws IOException, InterruptedException, ExecutionException {
+        byte[] m = member.get();
+        offsets[block] = written;
+        out.write(m);
+        return written + m.length;
+    }
+
+    private static int lastLf(byte[] b, int len) {
+        for (int i = len - 1; i >= 0; i--) if (b[i] == OrderCsvParser.LF) return i;
+        return -1;
+    }
+
+    private static byte[] dataMember(byte[] data, int len, int level) {
+        Deflater d = new Deflater(level, true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(len / 3 + 64);
+        out.write(new byte[DATA_HEADER], 0, DATA_HEADER);
+        try {
+            d.setInput(data, 0, len);
+            d.finish();
+            byte[] buf = new byte[1 << 16];
+            while (!d.finished()) out.write(buf, 0, d.deflate(buf));
+        } finally {
+            d.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, len);
+        ByteBuffer tail = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc.getValue()).putInt(len);
+        out.write(tail.array(), 0, 8);
+        byte[] member = out.toByteArray();
+        ByteBuffer.wrap(member).order(ByteOrder.LITTLE_ENDIAN).put(header(8)).put((byte) 'O').put((byte) 'C')
+                .putShort((short) 4).putInt(member.length);
+        return member;
+    }
+
+    private static byte[] emptyMember(char si1, char si2, byte[] payload) {
+        ByteBuffer b = ByteBuffer.allocate(12 + 4 + payload.length + EMPTY_DEFLATE.length + 8).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(header(4 + payload.length)).put((byte) si1).put((byte) si2).putShort((short) payload.length).put(payload);
+        b.put(EMPTY_DEFLATE).putInt(0).putInt(0); // CRC32 and size of no data
+        return b.array();
+    }
+
+    /** The fixed gzip header with FEXTRA set, through XLEN. */
+    private static byte[] header(int xlen) {
+        return ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN)
+                .put((byte) 0x1f).put((byte) 0x8b).put((byte) 8).put((byte) 4) // deflate, FEXTRA
+                .putInt(0).put((byte) 0).put((byte) 255) // no mtime, no flags, unknown OS
+                .putShort((short) xlen).array();
+    }
+
+    /** Whether {@code path} ends with this format's trailer, so its blocks can be read in parallel. */
+    static boolean isBlockGzip(Path path) throws IOException {
+        if (!Gzip.isGzip(path)) return false;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            return trailer(ch) != null;
+        }
+    }
+
+    private static ByteBuffer trailer(FileChannel ch) throws IOException {
+        long size = ch.size();
+        if (size < TRAILER_SIZE) return null;
+        ByteBuffer b = read(ch, size - TRAILER_SIZE, TRAILER_SIZE);
+        boolean ok = b.get(0) == 0x1f && (b.get(1) & 0xff) == 0x8b && b.get(3) == 4 && b.getShort(10) == 16
+                && b.get(12) == 'O' && b.get(13) == 'T' && b.getShort(14) == 12;
+        return ok ? b.position(16) : null;
+    }
+
+    /**
+     * Parses every block on {@code pool}, each with its own parser; like MappedOrderFile.load
+     * the rows come back in file order and skipped rows are counted in {@code rejects}.
+     */
+    static List<Order> load(Path path, ForkJoinPool pool, int columns, RejectCounts rejects) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer t = trailer(ch);
+            if (t == null) throw new IOException("Not a block gzip file: " + path);
+            long indexOffset = t.getLong();
+            int blocks = t.getInt();
+            if (blocks == 0) throw new IllegalArgumentException("Empty file");
+            long[] offsets = new long[blocks + 1];
+            int[] sizes = new int[blocks];
+            readIndex(ch, indexOffset, offsets, sizes);
+            offsets[blocks] = indexOffset;
+
+            ByteBuffer first = inflate(ch, offsets, sizes, 0);
+            int nl = OrderCsvParser.indexOf(first, OrderCsvParser.LF, 0, first.limit());
+            ColumnPlan plan = new ColumnPlan(OrderCsvParser.parseHeader(first, 0, nl < 0 ? first.limit() : nl), columns);
+            int dataStart = nl < 0 ? first.limit() : nl + 1;
+
+            List<ForkJoinTask<List<Order>>> tasks = new ArrayList<>();
+            RejectCounts[] blockRejects = new RejectCounts[blocks];
+            for (int k = 0; k < blocks; k++) {
+                int block = k;
+                RejectCounts r = blockRejects[k] = new RejectCounts();
+                tasks.add(pool.submit(() -> {
+                    ByteBuffer buf = block == 0 ? first : inflate(ch, offsets, sizes, block);
+                    List<Order> out = new ArrayList<>();
+                    new OrderCsvParser(plan, r).parse(buf, block == 0 ? dataStart : 0, buf.limit(), out::add);
+                    return out;
+                }));
+            }
+            List<Order> out = new ArrayList<>();
+            for (ForkJoinTask<List<Order>> task : tasks) out.addAll(task.get());
+            for (RejectCounts r : blockRejects) rejects.merge(r);
+            return out;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + path, e);
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof IOException) throw (IOException) c;
+            if (c instanceof RuntimeException) throw (RuntimeException) c;
+            throw new IOException(c);
+        }
+    }
+
+    private static void readIndex(FileChannel ch, long pos, long[] offsets, int[] sizes) throws IOException {
+        int k = 0;
+        while (k < sizes.length) {
+            ByteBuffer h = read(ch, pos, 16);
+            int xlen = h.getShort(10) & 0xffff;
+            int len = h.getShort(14) & 0xffff;
+            if (h.get(12) != 'O' || h.get(13) != 'I' || len % ENTRY != 0 || xlen != len + 4) {
+                throw new IOException("Corrupt block index at offset " + pos);
+            }
+            ByteBuffer entries = read(ch, pos + 16, len);
+            for (int i = 0; i < len / ENTRY && k < sizes.length; i++, k++) {
+                offsets[k] = entries.getLong();
+                sizes[k] = entries.getInt();
+            }
+            pos += 16 + len + EMPTY_DEFLATE.length + 8;
+        }
+    }
+
+    private static ByteBuffer inflate(FileChannel ch, long[] offsets, int[] sizes, int block) throws IOException {
+        long from = offsets[block];
+        ByteBuffer m = read(ch, from, (int) (offsets[block + 1] - from));
+        int xlen = m.getShort(10) & 0xffff;
+        if (m.limit() < 12 + xlen + 8 || m.get(0) != 0x1f || (m.get(1) & 0xff) != 0x8b || (m.get(3) & 4) == 0) {
+            throw new IOException("Corrupt block " + block + " at offset " + from);
+        }
+        byte[] data = new byte[sizes[block]];
+        Inflater inf = new Inflater(true);
+        try {
+            inf.setInput(m.array(), 12 + xlen, m.limit() - 12 - xlen - 8);
+            int n = 0;
+            while (n < data.length && !inf.finished()) {
+                int got = inf.inflate(data, n, data.length - n);
+                if (got == 0 && (inf.needsInput() || inf.needsDictionary())) break;
+                n += got;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, n);
+            if (n != data.length || m.getInt(m.limit() - 4) != n || m.getInt(m.limit() - 8) != (int) crc.getValue()) {
+                throw new IOException("Corrupt block " + block + " at offset " + from);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block " + block + " at offset " + from + ": " + e.getMessage());
+        } finally {
+            inf.end();
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    private static ByteBuffer read(FileChannel ch, long pos, int len) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(len).order(ByteOrder.LITTLE_ENDIAN);
+        while (b.hasRemaining()) {
+            if (ch.read(b, pos + b.position()) < 0) throw new IOException("Truncated file at offset " + (pos + b.position()));
+        }
+        return b.flip();
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> argmap = OrderProcessor.parseArgs(args);
+        String input = argmap.get("--input"), output = argmap.get("--output");
+        if (input == null || output == null) {
+            System.err.println("Usage: BlockGzip --input FILE --output FILE.gz [--block-size BYTES] [--level 1-9] [--threads N]");
+            System.exit(1);
+        }
+        int blockSize = OrderProcessor.parsePositiveInt(argmap, "--block-size", DEFAULT_BLOCK);
+        int level = OrderProcessor.parsePositiveInt(argmap, "--level", 6);
+        if (level > 9) {
+            System.err.println("Invalid --level: " + level);
+            System.exit(1);
+        }
+        int threads = OrderProcessor.parsePositiveInt(argmap, "--threads", Runtime.getRuntime().availableProcessors());
+        try {
+            int blocks = write(Paths.get(input), Paths.get(output), blockSize, level, threads);
+            System.out.println("Wrote " + output + " (" + blocks + " blocks)");
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
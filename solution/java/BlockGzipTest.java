@@ -0,0 +1,45 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+public class BlockGzipTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testReadableAsPlainGzipAndInParallel() throws Exception {
+        Path csv = tmp.getRoot().toPath().resolve("orders.csv");
+        new OrderGenerator(11).rows(50_000).malformedRatio(0.01).write(csv);
+        Path gz = tmp.getRoot().toPath().resolve("orders.csv.gz");
+        // small blocks: many members and more than one index member
+        int blocks = BlockGzip.write(csv, gz, 512, 6, 3);
+        assertTrue(blocks > 4096);
+        assertTrue(BlockGzip.isBlockGzip(gz));
+        assertFalse(BlockGzip.isBlockGzip(csv));
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gz))) {
+            assertArrayEquals(Files.readAllBytes(csv), in.readAllBytes());
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            RejectCounts r1 = new RejectCounts(), r2 = new RejectCounts();
+            List<Order> plain = MappedOrderFile.load(csv, pool, ColumnPlan.ALL_COLUMNS, r1);
+            List<Order> blocked = MappedOrderFile.load(gz, pool, ColumnPlan.ALL_COLUMNS, r2);
+            assertEquals(plain.size(), blocked.size());
+            for (int i = 0; i < plain.size(); i++) {
+                assertEquals(HighValueCsvWriter.row(plain.get(i)), HighValueCsvWriter.row(blocked.get(i)));
+            }
+            assertEquals(r1.toString(), r2.toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
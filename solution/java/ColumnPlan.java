@@ -0,0 +1,37 @@
+/**
+ * Header resolved once per file: the row position of each OrderProcessor.REQUIRED column,
+ * or -1 for columns the current job does not decode.
+ */
+final class ColumnPlan {
+    static final int ORDER_ID = 0, CUSTOMER_ID = 1, CATEGORY = 2, UNIT_PRICE = 3, QUANTITY = 4, TIMESTAMP = 5;
+    static final int ALL_COLUMNS = (1 << OrderProcessor.REQUIRED.length) - 1;
+    // unit_price and quantity are always decoded because they decide whether a row is valid
+    static final int SUMMARY_COLUMNS = 1 << CATEGORY | 1 << UNIT_PRICE | 1 << QUANTITY;
+
+    private final int[] position = new int[OrderProcessor.REQUIRED.length];
+    private final int width;
+
+    ColumnPlan(String[] header, int columns) {
+        columns |= 1 << UNIT_PRICE | 1 << QUANTITY;
+        int w = 0;
+        for (int r = 0; r < position.length; r++) {
+            int at = -1;
+            for (int i = 0; i < header.length; i++) {
+                if (header[i].equals(OrderProcessor.REQUIRED[r])) at = i;
+            }
+            if (at < 0) throw new IllegalArgumentException("Missing columns: " + OrderProcessor.REQUIRED[r]);
+            position[r] = (columns & 1 << r) != 0 ? at : -1;
+            if (position[r] >= 0) w = Math.max(w, at + 1);
+        }
+        width = w;
+    }
+
+    int position(int column) {
+        return position[column];
+    }
+
+    /** Number of leading fields a row must be split into to reach every decoded column. */
+    int width() {
+        return width;
+    }
+}
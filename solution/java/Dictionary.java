@@ -0,0 +1,102 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Assigns dense int codes to values in first-seen order, keyed by their raw UTF-8 bytes so a
+ * field can be looked up straight from the input buffer; each value is decoded to a String
+ * once and that instance is shared by every row. null is a value like any other.
+ */
+final class Dictionary {
+    static final int FULL = -1;
+
+    private final int limit;
+    private int size;
+    private byte[][] keys = new byte[16][];
+    private int[] hashes = new int[16];
+    private String[] values = new String[16];
+    private int[] table = new int[32]; // code + 1 per slot, 0 when empty; at most half full
+    private int nullCode = -1;
+
+    Dictionary() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /** A dictionary that stops taking new values once it holds {@code limit} of them. */
+    Dictionary(int limit) {
+        this.limit = limit;
+    }
+
+    int encode(String value) {
+        if (value == null) {
+            if (nullCode < 0 && size < limit) nullCode = add(null, 0, null);
+            return nullCode < 0 ? FULL : nullCode;
+        }
+        byte[] b = value.getBytes(StandardCharsets.UTF_8);
+        return encode(ByteBuffer.wrap(b), 0, b.length, value);
+    }
+
+    /** Code for the bytes {@code buf[from, to)}, or {@link #FULL} if they are new and the limit is reached. */
+    int encode(ByteBuffer buf, int from, int to) {
+        return encode(buf, from, to, null);
+    }
+
+    String decode(int code) {
+        return values[code];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int encode(ByteBuffer buf, int from, int to, String value) {
+        int h = hash(buf, from, to);
+        int mask = table.length - 1;
+        int slot = h & mask;
+        for (int code; (code = table[slot] - 1) >= 0; slot = (slot + 1) & mask) {
+            if (hashes[code] == h && matches(keys[code], buf, from, to)) return code;
+        }
+        if (size >= limit) return FULL;
+        byte[] key = new byte[to - from];
+        buf.get(from, key, 0, key.length);
+        int code = add(key, h, value != null ? value : new String(key, StandardCharsets.UTF_8));
+        table[slot] = code + 1;
+        if (size * 2 > table.length) rehash();
+        return code;
+    }
+
+    private int add(byte[] key, int hash, String value) {
+        if (size == values.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        hashes[size] = hash;
+        values[size] = value;
+        return size++;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int code = 0; code < size; code++) {
+            if (keys[code] == null) continue; // the null value is not hashed
+            int slot = hashes[code] & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = code + 1;
+        }
+    }
+
+    private static int hash(ByteBuffer buf, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) h = 31 * h + buf.get(i);
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer buf, int from, int to) {
+        if (key.length != to - from) return false;
+        for (int i = 0; i < key.length; i++) if (key[i] != buf.get(from + i)) return false;
+        return true;
+    }
+}
@@ -0,0 +1,273 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingests order files dropped into a directory. Each new or changed *.csv or *.csv.gz is
+ * processed once its size and modification time have held still for the settle interval.
+ * Hidden and *.tmp / *.part files are ignored, so a writer that renames its file into place is
+ * never read half-written; it is still picked up only after the settle interval, unless that
+ * is 0 (--settle-ms 0). Files run on a fixed pool of workers, each writing
+ * NAME.summary.json and NAME.high_value_orders.csv to the output directory.
+ *
+ * <p>The output directory also holds summary.json, the rolling summary of every file ingested
+ * so far, and watch_state.json, which records each file's size, mtime and partial summary so a
+ * restart skips what was already done. A file that changes after ingestion is processed again
+ * and its contribution to the rolling summary replaced.
+ */
+final class DirectoryWatcher implements Closeable {
+    static final String STATE = "watch_state.json";
+
+    private final Path dir, outDir;
+    private final BigDecimal threshold;
+    private final long thresholdCents;
+    private final ExecutorService pool;
+    private final WatchService watcher;
+    private long settleNanos = TimeUnit.MILLISECONDS.toNanos(500);
+
+    // touched by the watching thread only
+    private final Map<Path, Observation> pending = new HashMap<>();
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    // by file name, in the order first ingested; guarded by this
+    private final Map<String, FileResult> ingested = new LinkedHashMap<>();
+    private volatile boolean running;
+
+    DirectoryWatcher(Path dir, Path outDir, BigDecimal threshold, int workers) throws IOException {
+        if (!Files.isDirectory(dir)) throw new IllegalArgumentException("Not a directory: " + dir);
+        if (Files.exists(outDir) && Files.isSameFile(dir, outDir)) {
+            throw new IllegalArgumentException("The output directory must not be the watched one");
+        }
+        this.dir = dir;
+        this.outDir = outDir;
+        this.threshold = threshold;
+        this.thresholdCents = Money.ceilCents(threshold);
+        Files.createDirectories(outDir);
+        if (Files.exists(outDir.resolve(STATE))) restore();
+        watcher = dir.getFileSystem().newWatchService();
+        pool = Executors.newFixedThreadPool(workers);
+    }
+
+    /** How long a file's size and mtime must stay unchanged before it counts as fully written. */
+    DirectoryWatcher settle(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("settle time must be >= 0");
+        settleNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return this;
+    }
+
+    /** Watches until {@link #stop()}, then waits for the files already handed to workers. */
+    void run() throws IOException, InterruptedException {
+        running = true;
+        dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        scan(); // files that arrived while nobody was watching
+        long tick = Math.max(10, TimeUnit.NANOSECONDS.toMillis(settleNanos) / 4);
+        try {
+            while (running) {
+                WatchKey key = watcher.poll(tick, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> e : key.pollEvents()) {
+                        if (e.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            scan();
+                        } else {
+                            offer(dir.resolve((Path) e.context()));
+                        }
+                    }
+                    if (!key.reset()) throw new IOException("No longer watching " + dir);
+                }
+                dispatchSettled();
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    synchronized int filesIngested() {
+        return ingested.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        watcher.close();
+    }
+
+    private void scan() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path p : files) offer(p);
+        }
+    }
+
+    private void offer(Path p) {
+        String name = p.getFileName().toString();
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (name.startsWith(".") || !lower.endsWith(".csv") && !lower.endsWith(".csv.gz")) return;
+        pending.putIfAbsent(p, new Observation(-1, -1, System.nanoTime()));
+    }
+
+    /** Hands each pending file that has held still for the settle interval to a worker. */
+    private void dispatchSettled() throws IOException {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<Path, Observation>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Observation> e = it.next();
+            Path p = e.getKey();
+            BasicFileAttributes a;
+            try {
+                a = Files.readAttributes(p, BasicFileAttributes.class);
+            } catch (NoSuchFileException gone) {
+                it.remove();
+                continue;
+            }
+            if (!a.isRegularFile()) {
+                it.remove();
+                continue;
+            }
+            long size = a.size(), modified = a.lastModifiedTime().toMillis();
+            Observation o = e.getValue();
+            if (size != o.size || modified != o.modified) {
+                e.setValue(new Observation(size, modified, now));
+                continue;
+            }
+            // still being written, or its previous version still being processed
+            if (now - o.since < settleNanos || inFlight.contains(p)) continue;
+            it.remove();
+            if (alreadyIngested(p.getFileName().toString(), size, modified)) continue;
+            inFlight.add(p);
+            pool.execute(() -> {
+                try {
+                    ingest(p, size, modified);
+                } finally {
+                    inFlight.remove(p);
+                }
+            });
+        }
+    }
+
+    private synchronized boolean alreadyIngested(String name, long size, long modified) {
+        FileResult r = ingested.get(name);
+        return r != null && r.size == size && r.modified == modified;
+    }
+
+    private void ingest(Path p, long size, long modified) {
+        String name = p.getFileName().toString();
+        RejectCounts rejects = new RejectCounts();
+        SummaryAccumulator acc = new SummaryAccumulator();
+        String error = null;
+        try {
+            acc = OrderProcessor.streamSummary(p.toString(), threshold,
+                    outDir.resolve(name + ".summary.json").toString(),
+                    outDir.resolve(name + ".high_value_orders.csv").toString(), rejects);
+            if (acc.count() == 0) error = "No valid orders found.";
+        } catch (NoSuchFileException e) {
+            error = "No such file: " + e.getMessage();
+        } catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        try {
+            record(name, new FileResult(size, modified, acc, rejects, error));
+        } catch (IOException e) {
+            System.err.println("Error writing " + outDir.resolve(STATE) + ": " + e.getMessage());
+        }
+        if (error != null) {
+            System.err.println("Error processing " + name + ": " + error);
+        } else {
+            System.out.println("Processed " + name + ": " + acc.count() + " orders"
+                    + (rejects.total() > 0 ? ", skipped " + rejects.total() + " malformed rows (" + rejects + ")" : ""));
+        }
+    }
+
+    /** Replaces the file's entry, then rewrites the rolling summary and the state from all entries. */
+    private synchronized void record(String name, FileResult result) throws IOException {
+        ingested.put(name, result);
+        SummaryAccumulator total = new SummaryAccumulator();
+        List<Object> files = new ArrayList<>();
+        for (Map.Entry<String, FileResult> e : ingested.entrySet()) {
+            FileResult r = e.getValue();
+            total.merge(r.summary);
+            Map<String, Object> f = new LinkedHashMap<>();
+            f.put("name", e.getKey());
+            f.put("size", r.size);
+            f.put("modified", r.modified);
+            f.put("error", r.error);
+            f.put("rejects", r.rejects.toMap());
+            f.put("categories", r.summary.toCategories());
+            files.add(f);
+        }
+        if (total.count() > 0) JsonWriter.replace(outDir.resolve("summary.json"), total.toSummary());
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("threshold_cents", thresholdCents);
+        state.put("files", files);
+        JsonWriter.replace(outDir.resolve(STATE), state);
+    }
+
+    private void restore() throws IOException {
+        Path path = outDir.resolve(STATE);
+        try {
+            Map<?, ?> s = (Map<?, ?>) JsonReader.parse(Files.readString(path));
+            if (((BigDecimal) s.get("threshold_cents")).longValueExact() != thresholdCents) {
+                throw new IllegalArgumentException("State file " + path + " was written for another threshold;"
+                        + " delete it to start over");
+            }
+            for (Object o : (List<?>) s.get("files")) {
+                Map<?, ?> f = (Map<?, ?>) o;
+                ingested.put((String) f.get("name"), new FileResult(
+                        ((BigDecimal) f.get("size")).longValueExact(),
+                        ((BigDecimal) f.get("modified")).longValueExact(),
+                        SummaryAccumulator.fromCategories((List<?>) f.get("categories")),
+                        RejectCounts.fromMap((Map<?, ?>) f.get("rejects")),
+                        (String) f.get("error")));
+            }
+        } catch (ClassCastException | NullPointerException | ArithmeticException e) {
+            throw new IllegalArgumentException("Corrupt state file " + path);
+        }
+    }
+
+    private static final class Observation {
+        final long size, modified, since;
+
+        Observation(long size, long modified, long since) {
+            this.size = size;
+            this.modified = modified;
+            this.since = since;
+        }
+    }
+
+    private static final class FileResult {
+        final long size, modified;
+        final SummaryAccumulator summary;
+        final RejectCounts rejects;
+        final String error;
+
+        FileResult(long size, long modified, SummaryAccumulator summary, RejectCounts rejects, String error) {
+            this.size = size;
+            this.modified = modified;
+            this.summary = summary;
+            this.rejects = rejects;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+public class DirectoryWatcherTest {
+    private static final String HEADER = "order_id,customer_id,category,unit_price,quantity,timestamp\n";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static void drop(Path dir, String name, String content) throws Exception {
+        Path part = dir.resolve(name + ".part");
+        Files.writeString(part, content);
+        Files.move(part, dir.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Thread start(DirectoryWatcher w) {
+        Thread t = new Thread(() -> {
+            try {
+                w.run();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        t.start();
+        return t;
+    }
+
+    private static void awaitIngested(DirectoryWatcher w, int files) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (w.filesIngested() < files) {
+            assertTrue("timed out waiting for " + files + " files", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void testDroppedFilesRollUpAndAreNotIngestedTwice() throws Exception {
+        Path in = tmp.newFolder("in").toPath();
+        Path out = tmp.getRoot().toPath().resolve("out");
+        BigDecimal threshold = new BigDecimal("100");
+        drop(in, "early.csv", HEADER + "O1,C1,Books,12.50,2,t1\n");
+
+        try (DirectoryWatcher w = new DirectoryWatcher(in, out, threshold, 2).settle(50)) {
+            Thread t = start(w);
+            drop(in, "a.csv", HEADER + "O2,C2,Toys,150.00,1,t2\nO3,C3,Toys,oops,1,t3\n");
+            drop(in, "notes.txt", "not orders\n");
+            awaitIngested(w, 2);
+            w.stop();
+            t.join();
+        }
+        assertTrue(Files.exists(out.resolve("a.csv.high_value_orders.csv")));
+        assertTrue(Files.exists(out.resolve("early.csv.summary.json")));
+        Map<?, ?> s = (Map<?, ?>) JsonReader.parse(Files.readString(out.resolve("summary.json")));
+        assertEquals(Map.of("Books", new BigDecimal(1), "Toys", new BigDecimal(1)), s.get("orders_per_category"));
+
+        // a restart only picks up what is new or changed
+        try (DirectoryWatcher w = new DirectoryWatcher(in, out, threshold, 2).settle(50)) {
+            assertEquals(2, w.filesIngested());
+            Thread t = start(w);
+            drop(in, "early.csv", HEADER + "O1,C1,Books,12.50,2,t1\nO4,C4,Home,3.00,1,t4\n");
+            drop(in, "b.csv", HEADER + "O5,C5,Books,200.00,1,t5\n");
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!Files.exists(out.resolve("b.csv.summary.json"))
+                    || !Files.readString(out.resolve("summary.json")).contains("Home")) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(20);
+            }
+            w.stop();
+            t.join();
+            assertEquals(3, w.filesIngested());
+        }
+        s = (Map<?, ?>) JsonReader.parse(Files.readString(out.resolve("summary.json")));
+        assertEquals(Map.of("Books", new BigDecimal(2), "Toys", new BigDecimal(1), "Home", new BigDecimal(1)),
+                s.get("orders_per_category"));
+    }
+}
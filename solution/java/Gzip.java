@@ -0,0 +1,221 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Transparent gzip for inputs and outputs. Inputs are recognised by their magic bytes, peeked
+ * from the opened channel so pipes work too, and inflated on a background thread, a few
+ * buffers ahead of the parser; outputs are compressed
+ * when their name ends in .gz (or .gz.tmp, for files written then moved into place), at the
+ * level each caller passes.
+ */
+final class Gzip {
+    static final int BUFFER = 1 << 16;
+    private static final int INFLATED_BUFFERS = 4;
+    private static final int INFLATED_BUFFER = 1 << 20;
+    private static final byte[] MAGIC = {(byte) 0x1f, (byte) 0x8b};
+
+    /** zlib's default compression level, 6. */
+    static final int DEFAULT_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+    private Gzip() {}
+
+    /** {@code level} if it is a compression level for .gz outputs: 1 (fastest) to 9 (smallest), or DEFAULT_LEVEL. */
+    static int checkLevel(int level) {
+        if (level != DEFAULT_LEVEL && (level < 1 || level > 9)) {
+            throw new IllegalArgumentException("gzip level must be 1-9");
+        }
+        return level;
+    }
+
+    /**
+     * Whether {@code path} is a regular file starting with the gzip magic bytes. Other files
+     * are never read here, since a pipe would lose what was read; see {@link #inflateIfGzip}.
+     */
+    static boolean isGzip(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) return false;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            return isGzip(ch);
+        }
+    }
+
+    /** Whether {@code ch} starts with the gzip magic bytes; reads at offset 0, leaving its position alone. */
+    static boolean isGzip(FileChannel ch) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(MAGIC.length);
+        while (head.hasRemaining() && ch.read(head, head.position()) >= 0) {
+            // a short read: keep going until two bytes or EOF
+        }
+        return isMagic(head.flip());
+    }
+
+    static boolean isGzipName(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(".gz") || name.endsWith(".gz.tmp");
+    }
+
+    static OutputStream newOutputStream(Path path) throws IOException {
+        return newOutputStream(path, DEFAULT_LEVEL);
+    }
+
+    /** Opens {@code path} for writing, gzip-compressed at {@code level} when {@link #isGzipName} says so. */
+    static OutputStream newOutputStream(Path path, int level) throws IOException {
+        checkLevel(level);
+        OutputStream out = Files.newOutputStream(path);
+        if (!isGzipName(path)) return out;
+        return new GZIPOutputStream(out, BUFFER) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    static BufferedWriter newBufferedWriter(Path path, int level) throws IOException {
+        if (!isGzipName(path)) return Files.newBufferedWriter(path);
+        return new BufferedWriter(new OutputStreamWriter(newOutputStream(path, level),
+                StandardCharsets.UTF_8.newEncoder()));
+    }
+
+    /**
+     * {@code in} as is, or its decompressed content when it starts with the gzip magic bytes.
+     * Only those bytes are peeked, and they are replayed, so this works on pipes and other
+     * channels that can be read only once. Concatenated members are read as one stream, as
+     * gunzip does. Inflating runs on its own thread so it overlaps the caller's parsing;
+     * closing the returned channel stops it and closes {@code in}.
+     */
+    static ReadableByteChannel inflateIfGzip(ReadableByteChannel in) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(MAGIC.length);
+        while (head.hasRemaining() && in.read(head) >= 0) {
+            // a short read: keep going until two bytes or EOF
+        }
+        ReadableByteChannel peeked = new PeekedChannel(head.flip(), in);
+        return isMagic(head) ? new InflatingChannel(Channels.newInputStream(peeked)) : peeked;
+    }
+
+    private static boolean isMagic(ByteBuffer head) {
+        return head.remaining() == MAGIC.length && head.get(0) == MAGIC[0] && head.get(1) == MAGIC[1];
+    }
+
+    /** Replays the bytes already read from a channel, then reads on from it. */
+    private static final class PeekedChannel implements ReadableByteChannel {
+        private final ByteBuffer head;
+        private final ReadableByteChannel in;
+
+        PeekedChannel(ByteBuffer head, ReadableByteChannel in) {
+            this.head = head;
+            this.in = in;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!head.hasRemaining()) return in.read(dst);
+            int n = Math.min(dst.remaining(), head.remaining());
+            dst.put(dst.position(), head, head.position(), n);
+            dst.position(dst.position() + n);
+            head.position(head.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return in.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class InflatingChannel implements ReadableByteChannel {
+        private static final ByteBuffer EOF = ByteBuffer.allocate(0);
+
+        private final InputStream raw;
+        private final RingBuffer<ByteBuffer> free = new RingBuffer<>(INFLATED_BUFFERS);
+        private final RingBuffer<ByteBuffer> full = new RingBuffer<>(INFLATED_BUFFERS + 1);
+        private final Thread inflater;
+        private volatile Throwable failure;
+        private ByteBuffer current;
+        private boolean open = true;
+
+        InflatingChannel(InputStream raw) {
+            this.raw = raw;
+            for (int i = 0; i < INFLATED_BUFFERS; i++) free.offer(ByteBuffer.allocate(INFLATED_BUFFER));
+            inflater = new Thread(this::inflate, "gzip-inflater");
+            inflater.setDaemon(true);
+            inflater.start();
+        }
+
+        private void inflate() {
+            try (GZIPInputStream in = new GZIPInputStream(raw, BUFFER)) {
+                while (true) {
+                    ByteBuffer b = free.take();
+                    int n = in.readNBytes(b.array(), 0, b.capacity());
+                    b.clear().limit(n);
+                    if (n > 0) full.put(b);
+                    if (n < b.capacity()) break;
+                }
+            } catch (InterruptedException e) {
+                // closed by the reader
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                // every exit ends the stream, or the reader would wait forever; full has room beyond
+                // every buffer, so this never blocks
+                full.offer(EOF);
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) throw new ClosedChannelException();
+            if (current == EOF) return -1;
+            while (current == null || !current.hasRemaining()) {
+                if (current != null) free.offer(current);
+                try {
+                    current = full.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while inflating", e);
+                }
+                if (current == EOF) {
+                    Throwable f = failure;
+                    if (f instanceof IOException) throw (IOException) f;
+                    if (f != null) throw new IOException("Inflating failed: " + f, f);
+                    return -1;
+                }
+            }
+            int n = Math.min(dst.remaining(), current.remaining());
+            dst.put(dst.position(), current, current.position(), n);
+            dst.position(dst.position() + n);
+            current.position(current.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!open) return;
+            open = false;
+            inflater.interrupt();
+            raw.close();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class GzipTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static byte[] gzip(byte[] b) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(b);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testGzipInputReadsLikePlain() throws Exception {
+        Path root = tmp.getRoot().toPath();
+        Path plain = root.resolve("orders.csv");
+        new OrderGenerator(9).rows(30_000).malformedRatio(0.01).write(plain);
+        byte[] csv = Files.readAllBytes(plain);
+        // two concatenated members, split mid-line, as gunzip accepts
+        Path gz = root.resolve("orders.csv.gz");
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        members.write(gzip(Arrays.copyOfRange(csv, 0, csv.length / 2)));
+        members.write(gzip(Arrays.copyOfRange(csv, csv.length / 2, csv.length)));
+        Files.write(gz, members.toByteArray());
+        assertTrue(Gzip.isGzip(gz));
+        assertFalse(Gzip.isGzip(plain));
+
+        BigDecimal threshold = new BigDecimal("300");
+        RejectCounts r1 = new RejectCounts(), r2 = new RejectCounts();
+        OrderProcessor.streamOrders(plain.toString(), threshold, root.resolve("s1.json").toString(),
+                root.resolve("h1.csv").toString(), r1);
+        OrderProcessor.streamOrders(gz.toString(), threshold, root.resolve("s2.json").toString(),
+                root.resolve("h2.csv").toString(), r2);
+        assertEquals(r1.toString(), r2.toString());
+        assertEquals(Files.readString(root.resolve("s1.json")), Files.readString(root.resolve("s2.json")));
+        assertEquals(Files.readString(root.resolve("h1.csv")), Files.readString(root.resolve("h2.csv")));
+        assertEquals(OrderProcessor.loadOrders(plain.toString(), 4).size(), OrderProcessor.loadOrders(gz.toString(), 4).size());
+    }
+
+    @Test
+    public void testGzNamedOutputsAreCompressed() throws Exception {
+        Path root = tmp.getRoot().toPath();
+        Path in = root.resolve("orders.csv");
+        Files.writeString(in, "order_id,customer_id,category,unit_price,quantity,timestamp\n"
+                + "O1,C1,Books,12.50,2,t1\nO2,C2,Toys,150.00,1,t2\n");
+        Path summary = root.resolve("summary.json.gz"), csv = root.resolve("hv.csv.gz");
+        assertEquals(2, OrderProcessor.streamOrders(in.toString(), new BigDecimal("100"), summary.toString(),
+                csv.toString(), new RejectCounts()));
+        OrderProcessor.streamOrders(in.toString(), new BigDecimal("100"), root.resolve("summary.json").toString(),
+                root.resolve("hv.csv").toString(), new RejectCounts());
+        assertArrayEquals(Files.readAllBytes(root.resolve("summary.json")), gunzip(summary));
+        assertArrayEquals(Files.readAllBytes(root.resolve("hv.csv")), gunzip(csv));
+    }
+
+    @Test
+    public void testEachWriterUsesItsOwnLevel() throws Exception {
+        Path root = tmp.getRoot().toPath();
+        Path in = root.resolve("orders.csv");
+        new OrderGenerator(6).rows(20_000).write(in);
+        Path fast = root.resolve("fast.csv.gz"), small = root.resolve("small.csv.gz");
+        OrderProcessor.exportHighValue(in.toString(), BigDecimal.ZERO, fast.toString(), true, new RejectCounts(), 1);
+        OrderProcessor.exportHighValue(in.toString(), BigDecimal.ZERO, small.toString(), true, new RejectCounts(), 9);
+        assertArrayEquals(gunzip(fast), gunzip(small));
+        assertTrue(Files.size(small) < Files.size(fast));
+    }
+
+    @Test
+    public void testGzipIsDetectedOnPipes() throws Exception {
+        Path root = tmp.getRoot().toPath();
+        Path plain = root.resolve("orders.csv");
+        new OrderGenerator(4).rows(20_000).write(plain);
+        byte[] csv = Files.readAllBytes(plain);
+        byte[] gz = gzip(csv);
+
+        // the peeked magic bytes are replayed, whether or not the input is gzip
+        for (byte[] b : new byte[][]{csv, gz, {'x'}, {}}) {
+            try (ReadableByteChannel ch = Gzip.inflateIfGzip(Channels.newChannel(new ByteArrayInputStream(b)))) {
+                byte[] read = Channels.newInputStream(ch).readAllBytes();
+                assertArrayEquals(b == gz ? csv : b, read);
+            }
+        }
+
+        BigDecimal threshold = new BigDecimal("300");
+        OrderProcessor.streamOrders(plain.toString(), threshold, root.resolve("s1.json").toString(),
+                root.resolve("h1.csv").toString(), new RejectCounts());
+        Path fifo = root.resolve("orders.fifo");
+        Assume.assumeTrue(new ProcessBuilder("mkfifo", fifo.toString()).start().waitFor() == 0);
+        for (int run = 0; run < 2; run++) {
+            Thread feeder = new Thread(() -> {
+                try (OutputStream out = Files.newOutputStream(fifo)) {
+                    out.write(gz);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            feeder.start();
+            if (run == 0) {
+                OrderProcessor.streamOrders(fifo.toString(), threshold, root.resolve("s2.json").toString(),
+                        root.resolve("h2.csv").toString(), new RejectCounts());
+            } else {
+                try (ReadableByteChannel ch = Gzip.inflateIfGzip(Files.newByteChannel(fifo))) {
+                    new OrderPipeline(2).run(ch, threshold, root.resolve("s2.json"), root.resolve("h2.csv"),
+                            new RejectCounts());
+                }
+            }
+            feeder.join();
+            assertEquals(Files.readString(root.resolve("s1.json")), Files.readString(root.resolve("s2.json")));
+            assertEquals(Files.readString(root.resolve("h1.csv")), Files.readString(root.resolve("h2.csv")));
+        }
+    }
+
+    @Test
+    public void testInflaterFailureReachesTheReader() throws Exception {
+        byte[] gz = gzip("order_id,customer_id\n".getBytes(StandardCharsets.US_ASCII));
+        // fails with an unchecked exception partway through the member
+        InputStream broken = new InputStream() {
+            private int pos;
+
+            @Override
+            public int read() {
+                if (pos == gz.length / 2) throw new IllegalStateException("device gone");
+                return gz[pos++] & 0xff;
+            }
+        };
+        try (ReadableByteChannel ch = Gzip.inflateIfGzip(Channels.newChannel(broken))) {
+            Channels.newInputStream(ch).readAllBytes();
+            fail("expected the inflater's failure");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private static byte[] gunzip(Path p) throws Exception {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(p))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/** Writes high_value_orders.csv, or the same CSV to any Writer, one row at a time. */
+final class HighValueCsvWriter implements Consumer<Order>, Closeable, Flushable {
+    private final BufferedWriter bw;
+
+    /** {@code gzipLevel} applies when the name ends in .gz; see Gzip.newOutputStream. */
+    HighValueCsvWriter(Path path, int gzipLevel) throws IOException {
+        this(Gzip.newBufferedWriter(path, gzipLevel));
+    }
+
+    HighValueCsvWriter(Writer out) throws IOException {
+        this(out, true);
+    }
+
+    /** Without {@code header}, rows are appended to a CSV that already has one. */
+    HighValueCsvWriter(Writer out, boolean header) throws IOException {
+        bw = out instanceof BufferedWriter ? (BufferedWriter) out : new BufferedWriter(out);
+        if (header) {
+            bw.write(String.join(",", OrderProcessor.REQUIRED));
+            bw.newLine();
+        }
+    }
+
+    @Override
+    public void accept(Order o) {
+        try {
+            bw.write(row(o));
+            bw.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** One CSV row, without the line separator. */
+    static String row(Order o) {
+        return String.format("%s,%s,%s,%.2f,%d,%s",
+                o.getOrderId(), o.getCustomerId(), o.getCategory(),
+                o.getUnitPrice(), o.getQuantity(), o.getTimestamp());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        bw.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        bw.close();
+    }
+}
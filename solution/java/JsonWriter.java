@@ -0,0 +1,273 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Streaming JSON generator that encodes straight into one reused byte buffer, so entries can
+ * be written as they are produced instead of being collected into a Map first. Members of the
+ * top-level object go on their own lines; everything nested is written inline, matching the
+ * layout summary.json has always had; a compact writer puts the whole document on one line,
+ * as JSON Lines needs. Strings are escaped and UTF-8 encoded char by char.
+ */
+final class JsonWriter implements Closeable {
+    static final int BUFFER = 1 << 13;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final OutputStream out;
+    private final boolean compact;
+    private final byte[] buf = new byte[BUFFER];
+    private int pos;
+    // per open container: whether it already has a member
+    private boolean[] nonEmpty = new boolean[8];
+    private int depth;
+    private boolean afterName;
+
+    JsonWriter(OutputStream out) {
+        this(out, false);
+    }
+
+    JsonWriter(OutputStream out, boolean compact) {
+        this.out = out;
+        this.compact = compact;
+    }
+
+    JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    JsonWriter name(CharSequence name) throws IOException {
+        separate();
+        string(name);
+        write(':');
+        write(' ');
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(CharSequence s) throws IOException {
+        if (s == null) return nullValue();
+        separate();
+        string(s);
+        return this;
+    }
+
+    JsonWriter value(long v) throws IOException {
+        separate();
+        if (v == Long.MIN_VALUE) {
+            ascii("-9223372036854775808");
+            return this;
+        }
+        if (v < 0) {
+            write('-');
+            v = -v;
+        }
+        ensure(19);
+        int end = pos + digits(v);
+        for (int i = end - 1; i >= pos; i--, v /= 10) buf[i] = (byte) ('0' + v % 10);
+        pos = end;
+        return this;
+    }
+
+    /** Written as Double.toString gives it; non-finite values have no JSON form and become null. */
+    JsonWriter value(double v) throws IOException {
+        if (Double.isNaN(v) || Double.isInfinite(v)) return nullValue();
+        separate();
+        ascii(Double.toString(v));
+        return this;
+    }
+
+    JsonWriter nullValue() throws IOException {
+        separate();
+        ascii("null");
+        return this;
+    }
+
+    /** Writes a String, Number, Map or Iterable (recursively), or any other value as its toString. */
+    JsonWriter value(Object v) throws IOException {
+        if (v == null) return nullValue();
+        if (v instanceof CharSequence) return value((CharSequence) v);
+        if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+            return value(((Number) v).longValue());
+        }
+        if (v instanceof Double) return value(((Double) v).doubleValue());
+        if (v instanceof Number) {
+            separate();
+            ascii(v.toString());
+            return this;
+        }
+        if (v instanceof Map) {
+            beginObject();
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+                name(String.valueOf(e.getKey())).value(e.getValue());
+            }
+            return endObject();
+        }
+        if (v instanceof Iterable) {
+            beginArray();
+            for (Iterator<?> it = ((Iterable<?>) v).iterator(); it.hasNext(); ) value(it.next());
+            return endArray();
+        }
+        return value(v.toString());
+    }
+
+    void flush() throws IOException {
+        out.write(buf, 0, pos);
+        pos = 0;
+        out.flush();
+    }
+
+    /**
+     * Writes {@code value} as the whole content of {@code path}, through a temporary sibling
+     * that is then moved into place, so readers never see a half-written file.
+     */
+    static void replace(Path path, Object value) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (JsonWriter w = new JsonWriter(Gzip.newOutputStream(tmp))) {
+            w.value(value);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Ends the document with a newline and closes the underlying stream. */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (depth != 0) throw new IllegalStateException("Unclosed JSON container");
+            write('\n');
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private JsonWriter open(char c) throws IOException {
+        separate();
+        write(c);
+        if (depth == nonEmpty.length) nonEmpty = Arrays.copyOf(nonEmpty, depth * 2);
+        nonEmpty[depth++] = false;
+        return this;
+    }
+
+    private JsonWriter close(char c) throws IOException {
+        if (depth == 0) throw new IllegalStateException("No open JSON container");
+        depth--;
+        if (depth == 0 && !compact) write('\n');
+        write(c);
+        return this;
+    }
+
+    // the comma (and for top-level members, the line break) before the next member
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth == 0) return;
+        boolean first = !nonEmpty[depth - 1];
+        nonEmpty[depth - 1] = true;
+        if (depth == 1 && !compact) {
+            if (!first) write(',');
+            ascii("\n  ");
+        } else if (!first) {
+            ascii(", ");
+        }
+    }
+
+    private void string(CharSequence s) throws IOException {
+        write('"');
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                write('\\');
+                write(c);
+            } else if (c < 0x20) {
+                escapeControl(c);
+            } else if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                ensure(2);
+                buf[pos++] = (byte) (0xc0 | c >> 6);
+                buf[pos++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensure(4);
+                buf[pos++] = (byte) (0xf0 | cp >> 18);
+                buf[pos++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                buf[pos++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                buf[pos++] = (byte) (0x80 | cp & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                write('?'); // unpaired surrogate, as String.getBytes would encode it
+            } else {
+                ensure(3);
+                buf[pos++] = (byte) (0xe0 | c >> 12);
+                buf[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buf[pos++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        write('"');
+    }
+
+    private void escapeControl(char c) throws IOException {
+        switch (c) {
+            case '\n': ascii("\\n"); break;
+            case '\r': ascii("\\r"); break;
+            case '\t': ascii("\\t"); break;
+            case '\b': ascii("\\b"); break;
+            case '\f': ascii("\\f"); break;
+            default:
+                ascii("\\u00");
+                write(HEX[c >> 4]);
+                write(HEX[c & 0xf]);
+        }
+    }
+
+    private void ascii(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) write(s.charAt(i));
+    }
+
+    private void write(int b) throws IOException {
+        if (pos == buf.length) drain();
+        buf[pos++] = (byte) b;
+    }
+
+    private void ensure(int n) throws IOException {
+        if (pos + n > buf.length) drain();
+    }
+
+    private void drain() throws IOException {
+        out.write(buf, 0, pos);
+        pos = 0;
+    }
+
+    private static int digits(long v) {
+        int d = 1;
+        while (v >= 10) {
+            v /= 10;
+            d++;
+        }
+        return d;
+    }
+}
@@ -0,0 +1,50 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class JsonWriterTest {
+    private static String json(Object v) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter w = new JsonWriter(out)) {
+            w.value(v);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSummaryLayout() throws Exception {
+        Map<String, Object> cats = new LinkedHashMap<>();
+        cats.put("Books", 2L);
+        cats.put("Toys", 1L);
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("total_revenue", 230.0);
+        m.put("orders_per_category", cats);
+        m.put("tags", Arrays.asList("a", null, -7));
+        m.put("top_category_by_revenue", null);
+        assertEquals("{\n  \"total_revenue\": 230.0,\n  \"orders_per_category\": {\"Books\": 2, \"Toys\": 1},\n"
+                + "  \"tags\": [\"a\", null, -7],\n  \"top_category_by_revenue\": null\n}\n", json(m));
+        assertEquals("{\n}\n", json(new HashMap<>()));
+    }
+
+    @Test
+    public void testStringsAreEscapedAndEncoded() throws Exception {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("k\"1\\", "line\nbreak\u0001 café € 😀");
+        assertEquals("{\n  \"k\\\"1\\\\\": \"line\\nbreak\\u0001 café € 😀\"\n}\n", json(m));
+    }
+
+    @Test
+    public void testEntriesStreamWithoutAMap() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter w = new JsonWriter(out)) {
+            w.beginObject().name("per_customer").beginObject();
+            for (int i = 0; i < 100_000; i++) w.name("C" + i).value(i);
+            w.endObject().endObject();
+        }
+        String s = out.toString(StandardCharsets.UTF_8);
+        assertTrue(s.startsWith("{\n  \"per_customer\": {\"C0\": 0, \"C1\": 1, "));
+        assertTrue(s.endsWith("\"C99999\": 99999}\n}\n"));
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+final class MappedOrderFile {
+    // a single mapping is capped at Integer.MAX_VALUE bytes, so larger files are walked in windows
+    static final long WINDOW = 1L << 30;
+    static final long MIN_CHUNK = 1L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private MappedOrderFile() {}
+
+    /** Feeds every valid row to {@code sink}; skipped rows are counted in {@code rejects}. */
+    static void forEach(Path path, int columns, Consumer<Order> sink, RejectCounts rejects) throws IOException {
+        scan(path, columns, Long.MIN_VALUE, rejects, (parser, buf, from, to) -> parser.parse(buf, from, to, sink));
+    }
+
+    /**
+     * Feeds {@code sink} only the rows whose total is at least {@code minTotalCents}, filtering
+     * inside the parser. Returns the number of valid rows, including those filtered out.
+     */
+    static long forEachAtLeast(Path path, long minTotalCents, Consumer<Order> sink, RejectCounts rejects) throws IOException {
+        return scan(path, ColumnPlan.ALL_COLUMNS, minTotalCents, rejects,
+                (parser, buf, from, to) -> parser.parse(buf, from, to, sink));
+    }
+
+    /** Appends every valid row to {@code batch}, decoding straight into its columns. */
+    static void forEach(Path path, int columns, OrderBatch batch, RejectCounts rejects) throws IOException {
+        scan(path, columns, Long.MIN_VALUE, rejects, (parser, buf, from, to) -> parser.parse(buf, from, to, batch));
+    }
+
+    /**
+     * Copies the header line and the lines of valid rows whose total is at least
+     * {@code minTotalCents} to {@code lines} as raw bytes; only price and quantity are decoded.
+     * Returns the number of valid rows.
+     */
+    static long forEachLine(Path path, long minTotalCents, OrderCsvParser.LineSink lines, RejectCounts rejects) throws IOException {
+        return scan(path, 0, minTotalCents, rejects, new WindowParser() {
+            @Override
+            public void header(ByteBuffer buf, int from, int to) {
+                lines.accept(buf, from, to);
+            }
+
+            @Override
+            public void parse(OrderCsvParser parser, ByteBuffer buf, int from, int to) {
+                parser.parse(buf, from, to, lines);
+            }
+        });
+    }
+
+    /**
+     * forEach and forEachLine in one pass, for inputs that can only be read once: every valid
+     * row goes to {@code sink}, and the header line plus the lines of the rows whose total is
+     * at least {@code minLineTotalCents} go to {@code lines} as raw bytes.
+     */
+    static void forEachWithLines(Path path, int columns, Consumer<Order> sink, long minLineTotalCents,
+                                 OrderCsvParser.LineSink lines, RejectCounts rejects) throws IOException {
+        scan(path, columns, Long.MIN_VALUE, rejects, new WindowParser() {
+            @Override
+            public void header(ByteBuffer buf, int from, int to) {
+                lines.accept(buf, from, to);
+            }
+
+            @Override
+            public void parse(OrderCsvParser parser, ByteBuffer buf, int from, int to) {
+                parser.parse(buf, from, to, sink, minLineTotalCents, lines);
+            }
+        });
+    }
+
+    interface WindowParser {
+        void parse(OrderCsvParser parser, ByteBuffer buf, int from, int to);
+
+        /** The header line, with its terminator when it has one. */
+        default void header(ByteBuffer buf, int from, int to) {}
+    }
+
+    /**
+     * Inputs that are not regular files, such as pipes, are read as a stream instead of mapped,
+     * and so are gzip inputs, inflated on the way. Gzip is recognised from the opened channel.
+     */
+    private static long scan(Path path, int columns, long minTotalCents, RejectCounts rejects,
+                             WindowParser target) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            try (ReadableByteChannel in = Gzip.inflateIfGzip(Files.newByteChannel(path))) {
+                return StreamedOrderFile.scan(in, columns, minTotalCents, rejects, target);
+            }
+        }
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (Gzip.isGzip(ch)) {
+                try (ReadableByteChannel in = Gzip.inflateIfGzip(ch)) {
+                    return StreamedOrderFile.scan(in, columns, minTotalCents, rejects, target);
+                }
+            }
+            long size = ch.size();
+            if (size == 0) throw new IllegalArgumentException("Empty file");
+            OrderCsvParser parser = null;
+            long pos = 0;
+            while (pos < size) {
+                long len = Math.min(WINDOW, size - pos);
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                int limit = (int) len;
+                if (pos + len < size) {
+                    limit = OrderCsvParser.lastIndexOf(buf, OrderCsvParser.LF, 0, limit) + 1;
+                    if (limit == 0) throw new IOException("Line longer than " + WINDOW + " bytes at offset " + pos);
+                }
+                int from = 0;
+                if (parser == null) {
+                    int nl = OrderCsvParser.indexOf(buf, OrderCsvParser.LF, 0, limit);
+                    int headerEnd = nl < 0 ? limit : nl;
+                    String[] header = OrderCsvParser.parseHeader(buf, 0, headerEnd);
+                    parser = new OrderCsvParser(new ColumnPlan(header, columns), rejects, minTotalCents);
+                    from = nl < 0 ? limit : nl + 1;
+                    target.header(buf, 0, from);
+                }
+                target.parse(parser, buf, from, limit);
+                pos += limit;
+            }
+            return parser.validRows();
+        }
+    }
+
+    /**
+     * Splits the rows into byte ranges snapped to line starts and parses them on a
+     * ForkJoinPool; chunks are concatenated in file order, so the result equals forEach's.
+     * A null pool loads sequentially, as do streams and gzip files other than BlockGzip ones.
+     */
+    static List<Order> load(Path path, ForkJoinPool pool, int columns, RejectCounts rejects) throws IOException {
+        boolean parallel = pool != null && pool.getParallelism() > 1;
+        if (parallel && BlockGzip.isBlockGzip(path)) return BlockGzip.load(path, pool, columns, rejects);
+        List<Order> out = new ArrayList<>();
+        if (!parallel || !Files.isRegularFile(path) || Gzip.isGzip(path)) {
+            forEach(path, columns, out::add, rejects);
+            return out;
+        }
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size == 0) throw new IllegalArgumentException("Empty file");
+            ByteBuffer line = headerLine(ch);
+            int headerEnd = line.limit();
+            if (headerEnd > 0 && line.get(headerEnd - 1) == OrderCsvParser.LF) headerEnd--;
+            ColumnPlan plan = new ColumnPlan(OrderCsvParser.parseHeader(line, 0, headerEnd), columns);
+
+            long[] bounds = split(ch, line.limit(), size, pool.getParallelism());
+            try {
+                List<ForkJoinTask<List<Order>>> tasks = new ArrayList<>();
+                RejectCounts[] chunkRejects = new RejectCounts[bounds.length - 1];
+                for (int k = 0; k + 1 < bounds.length; k++) {
+                    long from = bounds[k], to = bounds[k + 1];
+                    RejectCounts r = chunkRejects[k] = new RejectCounts();
+                    if (from < to) tasks.add(pool.submit(() -> parseChunk(ch, plan, r, from, to)));
+                }
+                for (ForkJoinTask<List<Order>> t : tasks) out.addAll(t.get());
+                for (RejectCounts r : chunkRejects) rejects.merge(r);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading " + path, e);
+            } catch (ExecutionException e) {
+                Throwable c = e.getCause();
+                if (c instanceof IOException) throw (IOException) c;
+                if (c instanceof RuntimeException) throw (RuntimeException) c;
+                throw new IOException(c);
+            }
+        }
+        return out;
+    }
+
+    static long[] split(FileChannel ch, long dataStart, long size, int parallelism) throws IOException {
+        long data = size - dataStart;
+        long chunks = Math.max(1, Math.min(data / MIN_CHUNK, (long) parallelism * CHUNKS_PER_THREAD));
+        chunks = Math.max(chunks, (data + WINDOW / 2 - 1) / (WINDOW / 2));
+        long[] bounds = new long[(int) chunks + 1];
+        bounds[0] = dataStart;
+        for (int k = 1; k < chunks; k++) {
+            bounds[k] = Math.max(bounds[k - 1], nextLineStart(ch, dataStart + data / chunks * k, size));
+        }
+        bounds[(int) chunks] = size;
+        return bounds;
+    }
+
+    private static List<Order> parseChunk(FileChannel ch, ColumnPlan plan, RejectCounts rejects,
+                                          long from, long to) throws IOException {
+        if (to - from > Integer.MAX_VALUE) throw new IOException("Line longer than " + WINDOW + " bytes at offset " + from);
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        List<Order> out = new ArrayList<>();
+        new OrderCsvParser(plan, rejects).parse(buf, 0, buf.limit(), out::add);
+        return out;
+    }
+
+    /** The first line of the file, including its newline when present. */
+    private static ByteBuffer headerLine(FileChannel ch) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        long pos = 0;
+        while (true) {
+            int scanned = buf.position();
+            if (!buf.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+                buf.flip();
+                buf = bigger.put(buf);
+            }
+            int n = ch.read(buf, pos);
+            int end = buf.position();
+            int nl = n < 0 ? -1 : OrderCsvParser.indexOf(buf, OrderCsvParser.LF, scanned, end);
+            if (n < 0 || nl >= 0) {
+                buf.position(0).limit(nl >= 0 ? nl + 1 : end);
+                return buf;
+            }
+            pos += n;
+        }
+    }
+
+    /** Offset of the first line that starts at or after {@code offset}. */
+    private static long nextLineStart(FileChannel ch, long offset, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long pos = offset - 1;
+        while (pos < size) {
+            buf.clear();
+            int n = ch.read(buf, pos);
+            if (n <= 0) break;
+            int nl = OrderCsvParser.indexOf(buf, OrderCsvParser.LF, 0, n);
+            if (nl >= 0) return pos + nl + 1;
+            pos += n;
+        }
+        return size;
+    }
+}
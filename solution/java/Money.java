@@ -0,0 +1,121 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+
+/** Fixed-point money in long cents; all arithmetic is overflow-checked. */
+final class Money {
+    static final long MALFORMED = Long.MIN_VALUE;
+    // well-formed, but not a whole number of cents (or out of range); callers fall back to BigDecimal
+    static final long NOT_CENTS = Long.MIN_VALUE + 1;
+
+    private static final int MAX_WHOLE_DIGITS = 16;
+    // the long range in units rather than cents
+    private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+    private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE, 2);
+
+    private Money() {}
+
+    /**
+     * Decodes a price such as "12.99", "-0.5" or "7." straight into cents. Returns
+     * {@link #MALFORMED} for input {@code new BigDecimal} would reject, and {@link #NOT_CENTS}
+     * for valid input that needs the BigDecimal path (sub-cent digits, exponents, huge values).
+     */
+    static long decodeCents(ByteBuffer buf, int from, int to) {
+        int i = from;
+        if (i == to) return MALFORMED;
+        boolean neg = false;
+        byte b = buf.get(i);
+        if (b == '-' || b == '+') { neg = b == '-'; i++; }
+        int start = i;
+        long whole = 0, frac = 0;
+        int wholeDigits = 0, fracDigits = 0;
+        boolean subCent = false;
+        for (; i < to; i++) {
+            b = buf.get(i);
+            if (b < '0' || b > '9') break;
+            if (whole > 0 || b != '0') wholeDigits++;
+            whole = whole * 10 + (b - '0');
+            if (wholeDigits > MAX_WHOLE_DIGITS) return OrderCsvParser.decodeDecimal(buf, from, to) == null ? MALFORMED : NOT_CENTS;
+        }
+        int digits = i - start;
+        if (i < to && b == '.') {
+            for (i++; i < to; i++) {
+                b = buf.get(i);
+                if (b < '0' || b > '9') break;
+                fracDigits++;
+                if (fracDigits <= 2) frac = frac * 10 + (b - '0');
+                else if (b != '0') subCent = true;
+            }
+        }
+        if (digits + fracDigits == 0) return MALFORMED;
+        if (i < to) return OrderCsvParser.decodeDecimal(buf, from, to) == null ? MALFORMED : NOT_CENTS;
+        if (subCent) return NOT_CENTS;
+        if (fracDigits == 1) frac *= 10;
+        long cents = whole * 100 + frac;
+        return neg ? -cents : cents;
+    }
+
+    /**
+     * Exact cents for {@code v}, or {@link #NOT_CENTS} when it has sub-cent digits or does not fit
+     * in a long (the two sentinels at the bottom of the range included).
+     */
+    static long toCents(BigDecimal v) {
+        if (v.compareTo(LONG_MAX) > 0 || v.compareTo(LONG_MIN) < 0) return NOT_CENTS;
+        BigDecimal c = v.movePointRight(2);
+        if (c.stripTrailingZeros().scale() > 0) return NOT_CENTS;
+        long cents = c.longValueExact();
+        return cents > NOT_CENTS ? cents : NOT_CENTS;
+    }
+
+    /**
+     * Smallest whole-cent amount that is {@code >= v}, for comparing cent totals against a
+     * threshold; clamped to the long range, so a threshold beyond every total selects nothing.
+     */
+    static long ceilCents(BigDecimal v) {
+        if (v.compareTo(LONG_MAX) >= 0) return Long.MAX_VALUE;
+        if (v.compareTo(LONG_MIN) <= 0) return Long.MIN_VALUE;
+        return v.movePointRight(2).setScale(0, RoundingMode.CEILING).longValueExact();
+    }
+
+    /** Largest whole-cent amount that is {@code <= v}; clamped to the long range like {@link #ceilCents}. */
+    static long floorCents(BigDecimal v) {
+        if (v.compareTo(LONG_MAX) >= 0) return Long.MAX_VALUE;
+        if (v.compareTo(LONG_MIN) <= 0) return Long.MIN_VALUE;
+        return v.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValueExact();
+    }
+
+    static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+
+    /** {@code cents * quantity}, or {@link #NOT_CENTS} when the product does not fit in a long. */
+    static long checkedTimes(long cents, int quantity) {
+        long lo = cents * quantity;
+        long hi = Math.multiplyHigh(cents, (long) quantity);
+        return hi == lo >> 63 && lo > NOT_CENTS ? lo : NOT_CENTS;
+    }
+
+    /** Order.total() semantics in cents: price * quantity rounded half-up to whole cents. */
+    static long totalCents(BigDecimal unitPrice, int quantity) {
+        return unitPrice.multiply(BigDecimal.valueOf(quantity)).setScale(2, RoundingMode.HALF_UP)
+                .unscaledValue().longValueExact();
+    }
+
+    static long plus(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /** Whether {@code a + b} overflows a long. */
+    static boolean sumOverflows(long a, long b) {
+        long r = a + b;
+        return ((a ^ r) & (b ^ r)) < 0;
+    }
+
+    static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
@@ -0,0 +1,55 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class MoneyTest {
+    private static long cents(String s) {
+        ByteBuffer b = ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+        return Money.decodeCents(b, 0, b.limit());
+    }
+
+    @Test
+    public void testDecodeCents() {
+        assertEquals(1299, cents("12.99"));
+        assertEquals(950, cents("9.5"));
+        assertEquals(700, cents("7."));
+        assertEquals(-50, cents("-.5"));
+        assertEquals(1299, cents("12.990"));
+        assertEquals(Money.NOT_CENTS, cents("12.995"));
+        assertEquals(Money.NOT_CENTS, cents("1E+2"));
+        assertEquals(Money.MALFORMED, cents("abc"));
+        assertEquals(Money.MALFORMED, cents("."));
+        assertEquals(Money.MALFORMED, cents("1.2.3"));
+    }
+
+    @Test
+    public void testTotalCentsMatchesTotal() {
+        for (String price : new String[]{"12.99", "12.995", "33.333", "0.005"}) {
+            Order o = new Order("O1", "C1", "A", new BigDecimal(price), 3, "t");
+            assertEquals(price, o.total(), Money.toBigDecimal(o.totalCents()));
+        }
+        assertEquals(10001, Money.ceilCents(new BigDecimal("100.001")));
+        assertEquals(Money.NOT_CENTS, Money.checkedTimes(Long.MAX_VALUE / 2, 3));
+    }
+
+    @Test
+    public void testToCentsCoversTheLongRange() {
+        assertEquals(1234567890123456789L, Money.toCents(new BigDecimal("12345678901234567.89")));
+        assertEquals(Long.MAX_VALUE, Money.toCents(BigDecimal.valueOf(Long.MAX_VALUE, 2)));
+        assertEquals(Money.NOT_CENTS, Money.toCents(BigDecimal.valueOf(Long.MAX_VALUE, 2).add(new BigDecimal("0.01"))));
+        assertEquals(Money.NOT_CENTS, Money.toCents(BigDecimal.valueOf(Long.MIN_VALUE, 2)));
+        assertEquals(Money.NOT_CENTS, Money.toCents(new BigDecimal("1e30")));
+        assertEquals(Money.NOT_CENTS, Money.toCents(new BigDecimal("0.001")));
+    }
+
+    @Test
+    public void testCeilCentsClampsToLongRange() {
+        assertEquals(1300, Money.ceilCents(new BigDecimal("12.991")));
+        assertEquals(-1299, Money.ceilCents(new BigDecimal("-12.991")));
+        assertEquals(Long.MAX_VALUE, Money.ceilCents(new BigDecimal("1e30")));
+        assertEquals(Long.MIN_VALUE, Money.ceilCents(new BigDecimal("-1e30")));
+        assertEquals(Long.MAX_VALUE, Money.ceilCents(new BigDecimal("1e999999999")));
+    }
+}
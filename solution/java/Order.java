@@ -5,6 +5,7 @@ public class Order {
     private final String customerId;
     private final String category;
     private final BigDecimal unitPrice;
+    private final long unitPriceCents;
     private final int quantity;
     private final String timestamp;
 
@@ -14,6 +15,19 @@ public class Order {
         this.customerId = customerId;
         this.category = category;
         this.unitPrice = unitPrice;
+        this.unitPriceCents = unitPrice == null ? Money.NOT_CENTS : Money.toCents(unitPrice);
+        this.quantity = quantity;
+        this.timestamp = timestamp;
+    }
+
+    /** Fixed-point constructor used by the parser; no BigDecimal is created unless asked for. */
+    public Order(String orderId, String customerId, String category,
+                 long unitPriceCents, int quantity, String timestamp) {
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.category = category;
+        this.unitPrice = null;
+        this.unitPriceCents = unitPriceCents;
         this.quantity = quantity;
         this.timestamp = timestamp;
     }
@@ -21,11 +35,21 @@ public class Order {
     public String getOrderId() { return orderId; }
     public String getCustomerId() { return customerId; }
     public String getCategory() { return category; }
-    public BigDecimal getUnitPrice() { return unitPrice; }
+    public BigDecimal getUnitPrice() {
+        return unitPrice != null || unitPriceCents == Money.NOT_CENTS ? unitPrice : Money.toBigDecimal(unitPriceCents);
+    }
+    /** Unit price in cents, or Money.NOT_CENTS when it has sub-cent digits. */
+    public long getUnitPriceCents() { return unitPriceCents; }
     public int getQuantity() { return quantity; }
     public String getTimestamp() { return timestamp; }
 
     public BigDecimal total() {
-        return unitPrice.multiply(BigDecimal.valueOf(quantity)).setScale(2, BigDecimal.ROUND_HALF_UP);
+        return getUnitPrice().multiply(BigDecimal.valueOf(quantity)).setScale(2, BigDecimal.ROUND_HALF_UP);
+    }
+
+    /** Same value as {@link #total()} in cents; throws ArithmeticException on overflow. */
+    public long totalCents() {
+        if (unitPriceCents != Money.NOT_CENTS) return Money.times(unitPriceCents, quantity);
+        return Money.totalCents(unitPrice, quantity);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders stored column by column: primitive arrays plus dictionary codes for category and
+ * customer_id, epoch seconds for timestamps and one shared byte heap for order ids. Rows are
+ * materialized as Order objects only on request.
+ */
+final class OrderBatch implements OrderColumns {
+    private int size;
+    private long[] priceCents = new long[16];
+    private int[] quantity = new int[16];
+    private int[] categoryId = new int[16];
+    private int[] customerId = new int[16];
+    private long[] epochSecond = new long[16];
+    private int[] orderIdEnd = new int[16]; // order id i is orderIdBytes[orderIdEnd[i - 1], orderIdEnd[i])
+    private byte[] orderIdBytes = new byte[256];
+    private final BitSet missingOrderId = new BitSet();
+    private final Dictionary categories = new Dictionary();
+    private final Dictionary customers = new Dictionary();
+    // the rare rows the primitive columns cannot hold exactly
+    private final Map<Integer, BigDecimal> exactPrices = new HashMap<>();
+    private final Map<Integer, String> rawTimestamps = new HashMap<>();
+    private final ZoneMaps zones = new ZoneMaps();
+
+    static OrderBatch load(Path path, int columns, RejectCounts rejects) throws IOException {
+        OrderBatch batch = new OrderBatch();
+        MappedOrderFile.forEach(path, columns, batch, rejects);
+        return batch;
+    }
+
+    static OrderBatch of(List<Order> orders) {
+        OrderBatch batch = new OrderBatch();
+        for (Order o : orders) batch.add(o);
+        return batch;
+    }
+
+    void add(Order o) {
+        int i = newRow();
+        priceCents[i] = o.getUnitPriceCents();
+        if (priceCents[i] == Money.NOT_CENTS) exactPrices.put(i, o.getUnitPrice());
+        quantity[i] = o.getQuantity();
+        categoryId[i] = categories.encode(o.getCategory());
+        customerId[i] = customers.encode(o.getCustomerId());
+        String ts = o.getTimestamp();
+        epochSecond[i] = Timestamps.parse(ts);
+        if (epochSecond[i] == Timestamps.NONE) rawTimestamps.put(i, ts);
+        if (o.getOrderId() == null) {
+            appendOrderId(i, null, -1, -1);
+        } else {
+            byte[] id = o.getOrderId().getBytes(StandardCharsets.UTF_8);
+            appendOrderId(i, ByteBuffer.wrap(id), 0, id.length);
+        }
+        addToZone(i);
+    }
+
+    /**
+     * Parser entry point: the row arrives already decoded, with category and customer as codes
+     * from {@link #categories()} and {@link #customers()} and the order id as raw bytes
+     * ({@code orderIdFrom < 0} when absent). exactPrice is set only for sub-cent prices.
+     */
+    void append(ByteBuffer buf, int orderIdFrom, int orderIdTo, int customerCode, int categoryCode,
+                long cents, BigDecimal exactPrice, int qty, long epoch, String rawTimestamp) {
+        int i = newRow();
+        priceCents[i] = exactPrice == null ? cents : Money.NOT_CENTS;
+        if (exactPrice != null) exactPrices.put(i, exactPrice);
+        quantity[i] = qty;
+        categoryId[i] = categoryCode;
+        customerId[i] = customerCode;
+        epochSecond[i] = epoch;
+        if (epoch == Timestamps.NONE) rawTimestamps.put(i, rawTimestamp);
+        appendOrderId(i, buf, orderIdFrom, orderIdTo);
+        addToZone(i);
+    }
+
+    Dictionary categories() {
+        return categories;
+    }
+
+    Dictionary customers() {
+        return customers;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // raw column access, for OrderColumnFile
+
+    ZoneMaps zones() {
+        return zones;
+    }
+
+    long priceCents(int row) {
+        return priceCents[row];
+    }
+
+    int quantity(int row) {
+        return quantity[row];
+    }
+
+    int categoryCode(int row) {
+        return categoryId[row];
+    }
+
+    int customerCode(int row) {
+        return customerId[row];
+    }
+
+    long epochSecond(int row) {
+        return epochSecond[row];
+    }
+
+    /** The price of a row whose priceCents is Money.NOT_CENTS. */
+    BigDecimal exactPrice(int row) {
+        return exactPrices.get(row);
+    }
+
+    /** The timestamp of a row whose epochSecond is Timestamps.NONE. */
+    String rawTimestamp(int row) {
+        return rawTimestamps.get(row);
+    }
+
+    boolean hasOrderId(int row) {
+        return !missingOrderId.get(row);
+    }
+
+    /** Copies row {@code row}'s order id bytes into {@code out}; returns how many. */
+    int orderIdBytes(int row, ByteBuffer out) {
+        int from = row == 0 ? 0 : orderIdEnd[row - 1];
+        out.put(orderIdBytes, from, orderIdEnd[row] - from);
+        return orderIdEnd[row] - from;
+    }
+
+    int orderIdLength(int row) {
+        return orderIdEnd[row] - (row == 0 ? 0 : orderIdEnd[row - 1]);
+    }
+
+    long totalCents(int row) {
+        long cents = priceCents[row];
+        if (cents != Money.NOT_CENTS) return Money.times(cents, quantity[row]);
+        return Money.totalCents(exactPrices.get(row), quantity[row]);
+    }
+
+    /** A fresh Order holding row {@code row}'s values. */
+    Order order(int row) {
+        String orderId = null;
+        if (!missingOrderId.get(row)) {
+            int from = row == 0 ? 0 : orderIdEnd[row - 1];
+            orderId = new String(orderIdBytes, from, orderIdEnd[row] - from, StandardCharsets.UTF_8);
+        }
+        String ts = epochSecond[row] != Timestamps.NONE ? Timestamps.format(epochSecond[row]) : rawTimestamps.get(row);
+        String customer = customers.decode(customerId[row]);
+        String category = categories.decode(categoryId[row]);
+        long cents = priceCents[row];
+        return cents != Money.NOT_CENTS
+                ? new Order(orderId, customer, category, cents, quantity[row], ts)
+                : new Order(orderId, customer, category, exactPrices.get(row), quantity[row], ts);
+    }
+
+    /** Same result as aggregating the materialized orders, computed over the columns. */
+    @Override
+    public SummaryAccumulator summarize() {
+        int n = categories.size();
+        long[] count = new long[n];
+        long[] cents = new long[n];
+        try {
+            for (int i = 0; i < size; i++) {
+                int c = categoryId[i];
+                count[c]++;
+                cents[c] = Money.plus(cents[c], totalCents(i));
+            }
+        } catch (ArithmeticException overflow) {
+            // a category's revenue outgrew a long: rescan through the accumulator, which spills
+            SummaryAccumulator acc = new SummaryAccumulator();
+            for (int i = 0; i < size; i++) acc.add(categories.decode(categoryId[i]), 1, totalCents(i));
+            return acc;
+        }
+        // codes are handed out in first-seen order, which is the order the accumulator keeps
+        SummaryAccumulator acc = new SummaryAccumulator();
+        for (int c = 0; c < n; c++) {
+            if (count[c] > 0) acc.add(categories.decode(c), count[c], cents[c]);
+        }
+        return acc;
+    }
+
+    @Override
+    public List<Order> filterHighValue(long thresholdCents, ZoneMaps.Scans scans) {
+        List<Order> out = new ArrayList<>();
+        for (int b = 0; b < zones.blocks(); b++) {
+            if (!zones.mayReachTotal(b, thresholdCents)) {
+                scans.skipped++;
+                continue;
+            }
+            scans.scanned++;
+            for (int i = b * ZoneMaps.BLOCK_ROWS, end = Math.min(size, i + ZoneMaps.BLOCK_ROWS); i < end; i++) {
+                if (totalCents(i) >= thresholdCents) out.add(order(i));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public List<Order> between(long fromEpochSecond, long toEpochSecond, ZoneMaps.Scans scans) {
+        List<Order> out = new ArrayList<>();
+        for (int b = 0; b < zones.blocks(); b++) {
+            if (!zones.mayOverlapTime(b, fromEpochSecond, toEpochSecond)) {
+                scans.skipped++;
+                continue;
+            }
+            scans.scanned++;
+            for (int i = b * ZoneMaps.BLOCK_ROWS, end = Math.min(size, i + ZoneMaps.BLOCK_ROWS); i < end; i++) {
+                long s = epochSecond[i];
+                if (s != Timestamps.NONE && s >= fromEpochSecond && s < toEpochSecond) out.add(order(i));
+            }
+        }
+        return out;
+    }
+
+    private void addToZone(int row) {
+        long cents = priceCents[row], lo = cents, hi = cents;
+        if (cents == Money.NOT_CENTS) {
+            lo = Money.floorCents(exactPrices.get(row));
+            hi = Money.ceilCents(exactPrices.get(row));
+        }
+        zones.add(row, lo, hi, quantity[row], totalCents(row), epochSecond[row]);
+    }
+
+    private int newRow() {
+        if (size == quantity.length) grow();
+        return size++;
+    }
+
+    private void appendOrderId(int row, ByteBuffer buf, int from, int to) {
+        int start = row == 0 ? 0 : orderIdEnd[row - 1];
+        if (from < 0) {
+            missingOrderId.set(row);
+            orderIdEnd[row] = start;
+            return;
+        }
+        int len = to - from;
+        if (start + len > orderIdBytes.length) {
+            orderIdBytes = Arrays.copyOf(orderIdBytes, Math.max(orderIdBytes.length * 2, start + len));
+        }
+        buf.get(from, orderIdBytes, start, len);
+        orderIdEnd[row] = start + len;
+    }
+
+    private void grow() {
+        int cap = quantity.length * 2;
+        priceCents = Arrays.copyOf(priceCents, cap);
+        quantity = Arrays.copyOf(quantity, cap);
+        categoryId = Arrays.copyOf(categoryId, cap);
+        customerId = Arrays.copyOf(customerId, cap);
+        epochSecond = Arrays.copyOf(epochSecond, cap);
+        orderIdEnd = Arrays.copyOf(orderIdEnd, cap);
+    }
+}
@@ -0,0 +1,48 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.util.*;
+
+public class OrderBatchTest {
+    private static List<Order> sample() {
+        return Arrays.asList(
+            new Order("O1","C1","Toys", new BigDecimal("50.00"),1,"2025-03-01T10:15:00Z"),
+            new Order("O2","C2","Books", new BigDecimal("33.333"),3,"2024-02-29T23:59:59Z"),
+            new Order("O3","C1","Games", new BigDecimal("60.0"),2,"not a time"),
+            new Order(null,"C4","Books", new BigDecimal("60.0"),1,null)
+        );
+    }
+
+    @Test
+    public void testColumnarPathsMatchListPaths() {
+        List<Order> orders = sample();
+        OrderBatch batch = OrderBatch.of(orders);
+        assertEquals(4, batch.size());
+        assertEquals(OrderProcessor.aggregate(orders).toString(), OrderProcessor.aggregate(batch).toString());
+        BigDecimal threshold = new BigDecimal("100");
+        List<Order> expected = OrderProcessor.filterHighValue(orders, threshold);
+        List<Order> actual = OrderProcessor.filterHighValue(batch, threshold);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getOrderId(), actual.get(i).getOrderId());
+            assertEquals(expected.get(i).total(), actual.get(i).total());
+        }
+    }
+
+    @Test
+    public void testOrderViewRoundTrips() {
+        List<Order> orders = sample();
+        OrderBatch batch = OrderBatch.of(orders);
+        for (int i = 0; i < orders.size(); i++) {
+            Order a = orders.get(i), b = batch.order(i);
+            assertEquals(a.getOrderId(), b.getOrderId());
+            assertEquals(a.getCustomerId(), b.getCustomerId());
+            assertEquals(a.getCategory(), b.getCategory());
+            assertEquals(0, a.getUnitPrice().compareTo(b.getUnitPrice()));
+            assertEquals(a.getQuantity(), b.getQuantity());
+            assertEquals(a.getTimestamp(), b.getTimestamp());
+        }
+        assertEquals(Timestamps.NONE, Timestamps.parse("2025-02-29T00:00:00Z"));
+        assertEquals(1740824100L, Timestamps.parse("2025-03-01T10:15:00Z"));
+    }
+}
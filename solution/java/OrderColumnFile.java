@@ -0,0 +1,488 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * The .ordcol sidecar: an input's parsed columns saved next to it, so later runs map them
+ * instead of parsing the CSV again. All integers are little-endian.
+ *
+ * <pre>
+ *   header     128 bytes: magic, version, rows per block, the source's size, mtime and sampled
+ *              hash, row and block counts, section offsets, and the parse's reject counts
+ *   block *    price cents i64[n], epoch seconds i64[n], quantity i32[n], category code i32[n],
+ *              customer code i32[n], order id end i32[n], the order id bytes, padding to 8
+ *   dicts      categories then customers: count i32, then per value a UTF-8 length i32 (-1 for
+ *              null) and the bytes
+ *   rare rows  prices that are not whole cents (row i32, text), timestamps that are not
+ *              ISO-8601 (row i32, text or null), rows without an order id (row i32)
+ *   directory  per block: offset i64, rows i32, order id bytes i32, then the block's zone map:
+ *              min and max i64 of price cents, quantity, total cents and epoch seconds
+ * </pre>
+ *
+ * A sidecar is used only while the source's size, mtime and hash still match its header. The
+ * hash covers the first and last 64 KiB of the source and 16 samples in between, so checking
+ * it costs a few reads however large the source; anything that does not match, or does not
+ * read back, is rebuilt. The zone maps are read with the header, so a query that skips a
+ * block never touches its pages.
+ */
+final class OrderColumnFile implements OrderColumns {
+    static final String SUFFIX = ".ordcol";
+    static final int BLOCK_ROWS = ZoneMaps.BLOCK_ROWS;
+    private static final byte[] MAGIC = {'O', 'R', 'D', 'C', 'O', 'L', '\r', '\n'};
+    private static final int VERSION = 2;
+    private static final int HEADER = 128;
+    private static final int HASH_EDGE = 1 << 16;
+    private static final int HASH_SAMPLES = 16;
+    private static final int HASH_SAMPLE = 1 << 12;
+
+    private final int size;
+    private final Block[] blocks;
+    private final ZoneMaps zones;
+    private final String[] categories;
+    private final String[] customers;
+    private final Map<Integer, BigDecimal> exactPrices = new HashMap<>();
+    private final Map<Integer, String> rawTimestamps = new HashMap<>();
+    private final BitSet missingOrderId = new BitSet();
+    private final RejectCounts rejects = new RejectCounts();
+
+    static Path sidecar(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    /**
+     * The orders in {@code source}: mapped from its sidecar when that is current, otherwise
+     * parsed, with a new sidecar written for next time. Rows skipped by the parse are added to
+     * {@code rejects} either way.
+     */
+    static OrderColumns load(Path source, RejectCounts rejects) throws IOException {
+        if (!Files.isRegularFile(source)) return OrderBatch.load(source, ColumnPlan.ALL_COLUMNS, rejects);
+        Path file = sidecar(source);
+        OrderColumnFile cached = open(source, file);
+        if (cached != null) {
+            rejects.merge(cached.rejects);
+            return cached;
+        }
+        Stamp before = Stamp.of(source);
+        RejectCounts parsed = new RejectCounts();
+        OrderBatch batch = OrderBatch.load(source, ColumnPlan.ALL_COLUMNS, parsed);
+        rejects.merge(parsed);
+        // a source rewritten while we parsed it would get a sidecar describing neither version
+        if (before.equals(Stamp.of(source))) {
+            try {
+                write(batch, parsed, before, file);
+            } catch (IOException e) {
+                System.err.println("Could not write " + file + ": " + e.getMessage());
+            }
+        }
+        return batch;
+    }
+
+    /** The sidecar {@code file} of {@code source}, or null if it is missing, stale or unreadable. */
+    static OrderColumnFile open(Path source, Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = ch.size();
+            if (length < HEADER) return null;
+            ByteBuffer h = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[MAGIC.length];
+            h.get(0, magic);
+            if (!Arrays.equals(magic, MAGIC) || h.getInt(8) != VERSION) return null;
+            if (!new Stamp(h.getLong(16), h.getLong(24), h.getLong(32)).matches(source)) return null;
+            try {
+                return new OrderColumnFile(ch, h, length);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                return null; // truncated or garbled: rebuilt like a stale one
+            }
+        }
+    }
+
+    private OrderColumnFile(FileChannel ch, ByteBuffer h, long length) throws IOException {
+        int blockRows = h.getInt(12);
+        size = h.getInt(40);
+        int blockCount = h.getInt(44);
+        long rareOffset = h.getLong(56);
+        long directoryOffset = h.getLong(64);
+        int reasons = h.getInt(72);
+        RejectCounts.Reason[] all = RejectCounts.Reason.values();
+        if (blockRows != BLOCK_ROWS || size < 0 || blockCount < 0 || reasons != all.length) {
+            throw new IllegalArgumentException("bad header");
+        }
+        for (int i = 0; i < reasons; i++) rejects.add(all[i], h.getLong(80 + 8 * i));
+
+        long dictOffset = h.getLong(48);
+        ByteBuffer tail = ch.map(FileChannel.MapMode.READ_ONLY, dictOffset, length - dictOffset)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        categories = readStrings(tail);
+        customers = readStrings(tail);
+        tail.position((int) (rareOffset - dictOffset));
+        for (int i = tail.getInt(); i > 0; i--) exactPrices.put(tail.getInt(), new BigDecimal(readString(tail)));
+        for (int i = tail.getInt(); i > 0; i--) rawTimestamps.put(tail.getInt(), readString(tail));
+        for (int i = tail.getInt(); i > 0; i--) missingOrderId.set(tail.getInt());
+
+        tail.position((int) (directoryOffset - dictOffset));
+        blocks = new Block[blockCount];
+        zones = new ZoneMaps(blockCount);
+        int first = 0;
+        for (int b = 0; b < blockCount; b++) {
+            long offset = tail.getLong();
+            int rows = tail.getInt();
+            int idBytes = tail.getInt();
+            for (int f = 0; f < ZoneMaps.FIELDS; f++) zones.set(b, f, tail.getLong(), tail.getLong());
+            ByteBuffer data = ch.map(FileChannel.MapMode.READ_ONLY, offset, 32L * rows + idBytes);
+            blocks[b] = new Block(first, rows, data);
+            first += rows;
+        }
+        if (first != size) throw new IllegalArgumentException("bad directory");
+    }
+
+    /** Writes {@code batch} to {@code file} as the sidecar of a source with stamp {@code stamp}. */
+    static void write(OrderBatch batch, RejectCounts rejects, Stamp stamp, Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Sink out = new Sink(ch, HEADER);
+            int rows = batch.size();
+            int blockCount = (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+            long[] offsets = new long[blockCount];
+            int[] idBytes = new int[blockCount];
+            for (int b = 0; b < blockCount; b++) {
+                int from = b * BLOCK_ROWS, to = Math.min(rows, from + BLOCK_ROWS);
+                offsets[b] = out.position();
+                for (int i = from; i < to; i++) out.putLong(batch.priceCents(i));
+                for (int i = from; i < to; i++) out.putLong(batch.epochSecond(i));
+                for (int i = from; i < to; i++) out.putInt(batch.quantity(i));
+                for (int i = from; i < to; i++) out.putInt(batch.categoryCode(i));
+                for (int i = from; i < to; i++) out.putInt(batch.customerCode(i));
+                int end = 0;
+                for (int i = from; i < to; i++) out.putInt(end += batch.orderIdLength(i));
+                for (int i = from; i < to; i++) batch.orderIdBytes(i, out.reserve(batch.orderIdLength(i)));
+                idBytes[b] = end;
+                out.pad();
+            }
+
+            long dictOffset = out.position();
+            writeStrings(out, batch.categories());
+            writeStrings(out, batch.customers());
+            long rareOffset = out.position();
+            List<Integer> exact = new ArrayList<>(), raw = new ArrayList<>(), missing = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                if (batch.priceCents(i) == Money.NOT_CENTS) exact.add(i);
+                if (batch.epochSecond(i) == Timestamps.NONE) raw.add(i);
+                if (!batch.hasOrderId(i)) missing.add(i);
+            }
+            out.putInt(exact.size());
+            for (int i : exact) {
+                out.putInt(i);
+                writeString(out, batch.exactPrice(i).toPlainString());
+            }
+            out.putInt(raw.size());
+            for (int i : raw) {
+                out.putInt(i);
+                writeString(out, batch.rawTimestamp(i));
+            }
+            out.putInt(missing.size());
+            for (int i : missing) out.putInt(i);
+
+            long directoryOffset = out.position();
+            for (int b = 0; b < blockCount; b++) {
+                out.putLong(offsets[b]);
+                out.putInt(Math.min(BLOCK_ROWS, rows - b * BLOCK_ROWS));
+                out.putInt(idBytes[b]);
+                for (int f = 0; f < ZoneMaps.FIELDS; f++) {
+                    out.putLong(batch.zones().min(b, f));
+                    out.putLong(batch.zones().max(b, f));
+                }
+            }
+            out.flush();
+
+            RejectCounts.Reason[] reasons = RejectCounts.Reason.values();
+            ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            h.put(MAGIC).putInt(VERSION).putInt(BLOCK_ROWS)
+                    .putLong(stamp.size).putLong(stamp.modified).putLong(stamp.hash)
+                    .putInt(rows).putInt(blockCount)
+                    .putLong(dictOffset).putLong(rareOffset).putLong(directoryOffset)
+                    .putInt(reasons.length).putInt(0);
+            for (RejectCounts.Reason r : reasons) h.putLong(rejects.get(r));
+            h.clear();
+            while (h.hasRemaining()) ch.write(h, h.position());
+            ch.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** A fresh Order holding row {@code row}'s values. */
+    Order order(int row) {
+        Block b = blocks[row / BLOCK_ROWS];
+        return b.order(row - b.first);
+    }
+
+    @Override
+    public SummaryAccumulator summarize() {
+        long[] count = new long[categories.length];
+        long[] cents = new long[categories.length];
+        try {
+            for (Block b : blocks) {
+                for (int i = 0; i < b.rows; i++) {
+                    int c = b.category.get(i);
+                    count[c]++;
+                    cents[c] = Money.plus(cents[c], b.totalCents(i));
+                }
+            }
+        } catch (ArithmeticException overflow) {
+            // a category's revenue outgrew a long: rescan through the accumulator, which spills
+            SummaryAccumulator acc = new SummaryAccumulator();
+            for (Block b : blocks) {
+                for (int i = 0; i < b.rows; i++) acc.add(categories[b.category.get(i)], 1, b.totalCents(i));
+            }
+            return acc;
+        }
+        SummaryAccumulator acc = new SummaryAccumulator();
+        for (int c = 0; c < categories.length; c++) {
+            if (count[c] > 0) acc.add(categories[c], count[c], cents[c]);
+        }
+        return acc;
+    }
+
+    @Override
+    public List<Order> filterHighValue(long thresholdCents, ZoneMaps.Scans scans) {
+        List<Order> out = new ArrayList<>();
+        for (int k = 0; k < blocks.length; k++) {
+            if (!zones.mayReachTotal(k, thresholdCents)) {
+                scans.skipped++;
+                continue;
+            }
+            scans.scanned++;
+            Block b = blocks[k];
+            for (int i = 0; i < b.rows; i++) {
+                if (b.totalCents(i) >= thresholdCents) out.add(b.order(i));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public List<Order> between(long fromEpochSecond, long toEpochSecond, ZoneMaps.Scans scans) {
+        List<Order> out = new ArrayList<>();
+        for (int k = 0; k < blocks.length; k++) {
+            if (!zones.mayOverlapTime(k, fromEpochSecond, toEpochSecond)) {
+                scans.skipped++;
+                continue;
+            }
+            scans.scanned++;
+            Block b = blocks[k];
+            for (int i = 0; i < b.rows; i++) {
+                long s = b.epoch.get(i);
+                if (s != Timestamps.NONE && s >= fromEpochSecond && s < toEpochSecond) out.add(b.order(i));
+            }
+        }
+        return out;
+    }
+
+    /** Views of one block's columns, {@code rows} rows starting at row {@code first}. */
+    private final class Block {
+        final int first, rows;
+        final LongBuffer price, epoch;
+        final IntBuffer quantity, category, customer, idEnd;
+        final ByteBuffer ids;
+
+        Block(int first, int rows, ByteBuffer data) {
+            this.first = first;
+            this.rows = rows;
+            int at = 0;
+            price = column(data, at, 8 * rows).asLongBuffer();
+            epoch = column(data, at += 8 * rows, 8 * rows).asLongBuffer();
+            quantity = column(data, at += 8 * rows, 4 * rows).asIntBuffer();
+            category = column(data, at += 4 * rows, 4 * rows).asIntBuffer();
+            customer = column(data, at += 4 * rows, 4 * rows).asIntBuffer();
+            idEnd = column(data, at += 4 * rows, 4 * rows).asIntBuffer();
+            ids = data.slice(at + 4 * rows, data.capacity() - at - 4 * rows);
+        }
+
+        long totalCents(int i) {
+            long cents = price.get(i);
+            if (cents != Money.NOT_CENTS) return Money.times(cents, quantity.get(i));
+            return Money.totalCents(exactPrices.get(first + i), quantity.get(i));
+        }
+
+        Order order(int i) {
+            int row = first + i;
+            String orderId = null;
+            if (!missingOrderId.get(row)) {
+                int from = i == 0 ? 0 : idEnd.get(i - 1);
+                byte[] b = new byte[idEnd.get(i) - from];
+                ids.get(from, b);
+                orderId = new String(b, StandardCharsets.UTF_8);
+            }
+            long s = epoch.get(i);
+            String ts = s != Timestamps.NONE ? Timestamps.format(s) : rawTimestamps.get(row);
+            String customerId = customers[customer.get(i)];
+            String categoryName = categories[category.get(i)];
+            long cents = price.get(i);
+            return cents != Money.NOT_CENTS
+                    ? new Order(orderId, customerId, categoryName, cents, quantity.get(i), ts)
+                    : new Order(orderId, customerId, categoryName, exactPrices.get(row), quantity.get(i), ts);
+        }
+    }
+
+    private static ByteBuffer column(ByteBuffer data, int at, int bytes) {
+        return data.slice(at, bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeStrings(Sink out, Dictionary d) throws IOException {
+        out.putInt(d.size());
+        for (int c = 0; c < d.size(); c++) writeString(out, d.decode(c));
+    }
+
+    private static void writeString(Sink out, String s) throws IOException {
+        if (s == null) {
+            out.putInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.putInt(b.length);
+        out.reserve(b.length).put(b);
+    }
+
+    private static String[] readStrings(ByteBuffer in) {
+        String[] values = new String[in.getInt()];
+        for (int i = 0; i < values.length; i++) values[i] = readString(in);
+        return values;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int len = in.getInt();
+        if (len < 0) return null;
+        byte[] b = new byte[len];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** What a sidecar remembers of its source to tell whether it still describes it. */
+    static final class Stamp {
+        final long size, modified, hash;
+
+        Stamp(long size, long modified, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+        static Stamp of(Path source) throws IOException {
+            BasicFileAttributes a = Files.readAttributes(source, BasicFileAttributes.class);
+            return new Stamp(a.size(), a.lastModifiedTime().toMillis(), hash(source, a.size()));
+        }
+
+        /** Checks size and mtime first, so a changed source is usually caught without reading it. */
+        boolean matches(Path source) throws IOException {
+            BasicFileAttributes a = Files.readAttributes(source, BasicFileAttributes.class);
+            return a.size() == size && a.lastModifiedTime().toMillis() == modified && hash(source, size) == hash;
+        }
+
+        /** CRC32C of the first and last HASH_EDGE bytes and HASH_SAMPLES evenly spaced samples. */
+        private static long hash(Path source, long size) throws IOException {
+            CRC32C crc = new CRC32C();
+            ByteBuffer buf = ByteBuffer.allocate(HASH_EDGE);
+            try (FileChannel ch = FileChannel.open(source, StandardOpenOption.READ)) {
+                hashRange(ch, crc, buf, 0, HASH_EDGE);
+                for (int i = 1; i <= HASH_SAMPLES; i++) {
+                    hashRange(ch, crc, buf, size / (HASH_SAMPLES + 1) * i, HASH_SAMPLE);
+                }
+                hashRange(ch, crc, buf, size - HASH_EDGE, HASH_EDGE);
+            }
+            return crc.getValue() ^ size << 32;
+        }
+
+        private static void hashRange(FileChannel ch, CRC32C crc, ByteBuffer buf, long from, int bytes)
+                throws IOException {
+            buf.clear().limit(bytes);
+            for (long at = Math.max(0, from); buf.hasRemaining(); ) {
+                int n = ch.read(buf, at);
+                if (n < 0) break;
+                at += n;
+            }
+            crc.update(buf.flip());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Stamp)) return false;
+            Stamp s = (Stamp) o;
+            return size == s.size && modified == s.modified && hash == s.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(hash);
+        }
+    }
+
+    /** A little-endian buffered writer over a channel that knows its file position. */
+    private static final class Sink {
+        private final FileChannel ch;
+        private ByteBuffer buf = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private long flushed;
+
+        Sink(FileChannel ch, long start) {
+            this.ch = ch;
+            this.flushed = start;
+        }
+
+        long position() {
+            return flushed + buf.position();
+        }
+
+        void putLong(long v) throws IOException {
+            reserve(8).putLong(v);
+        }
+
+        void putInt(int v) throws IOException {
+            reserve(4).putInt(v);
+        }
+
+        /** The buffer, with room for at least {@code bytes} more. */
+        ByteBuffer reserve(int bytes) throws IOException {
+            if (buf.remaining() < bytes) {
+                flush();
+                if (buf.capacity() < bytes) buf = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return buf;
+        }
+
+        void pad() throws IOException {
+            int n = (int) (-position() & 7);
+            reserve(n).put(new byte[n]);
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) flushed += ch.write(buf, flushed);
+            buf.clear();
+        }
+    }
+}
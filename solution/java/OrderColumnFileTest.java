@@ -0,0 +1,68 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class OrderColumnFileTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static void assertSameOrders(OrderColumns expected, OrderColumns actual, long thresholdCents) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.summarize().toSummary().toString(), actual.summarize().toSummary().toString());
+        List<Order> e = expected.filterHighValue(thresholdCents), a = actual.filterHighValue(thresholdCents);
+        assertEquals(e.size(), a.size());
+        for (int i = 0; i < e.size(); i++) assertEquals(HighValueCsvWriter.row(e.get(i)), HighValueCsvWriter.row(a.get(i)));
+    }
+
+    @Test
+    public void testSidecarMapsTheSameOrdersAcrossBlocks() throws Exception {
+        Path csv = tmp.getRoot().toPath().resolve("orders.csv");
+        new OrderGenerator(5).rows(OrderColumnFile.BLOCK_ROWS * 2 + 1000).malformedRatio(0.01).write(csv);
+        // the rows the primitive columns cannot hold: a sub-cent price and an odd timestamp
+        Files.writeString(csv, ",C9,Odd,12.345,3,yesterday\n", StandardOpenOption.APPEND);
+
+        RejectCounts parsed = new RejectCounts();
+        OrderColumns first = OrderColumnFile.load(csv, parsed);
+        assertTrue(first instanceof OrderBatch);
+        assertTrue(Files.exists(OrderColumnFile.sidecar(csv)));
+
+        RejectCounts mapped = new RejectCounts();
+        OrderColumns second = OrderColumnFile.load(csv, mapped);
+        assertTrue(second instanceof OrderColumnFile);
+        assertEquals(parsed.toString(), mapped.toString());
+        assertTrue(parsed.total() > 0);
+        assertSameOrders(first, second, 0);
+        assertSameOrders(first, second, Money.ceilCents(new BigDecimal("500")));
+        Order odd = ((OrderColumnFile) second).order(second.size() - 1);
+        assertEquals("", odd.getOrderId());
+        assertEquals("12.345", odd.getUnitPrice().toPlainString());
+        assertEquals("yesterday", odd.getTimestamp());
+    }
+
+    @Test
+    public void testStaleOrDamagedSidecarIsRebuilt() throws Exception {
+        Path csv = tmp.getRoot().toPath().resolve("orders.csv");
+        new OrderGenerator(6).rows(5000).write(csv);
+        OrderColumns before = OrderColumnFile.load(csv, new RejectCounts());
+
+        Files.writeString(csv, "X1,C1,Toys,10.00,1,2025-03-01T10:15:00Z\n", StandardOpenOption.APPEND);
+        OrderColumns rebuilt = OrderColumnFile.load(csv, new RejectCounts());
+        assertTrue(rebuilt instanceof OrderBatch);
+        assertEquals(before.size() + 1, rebuilt.size());
+        assertEquals(rebuilt.size(), OrderColumnFile.load(csv, new RejectCounts()).size());
+
+        try (FileChannel ch = FileChannel.open(OrderColumnFile.sidecar(csv), StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 10);
+        }
+        assertNull(OrderColumnFile.open(csv, OrderColumnFile.sidecar(csv)));
+        assertTrue(OrderColumnFile.load(csv, new RejectCounts()) instanceof OrderBatch);
+        assertTrue(OrderColumnFile.load(csv, new RejectCounts()) instanceof OrderColumnFile);
+    }
+}
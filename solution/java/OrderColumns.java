@@ -0,0 +1,26 @@
+import java.util.List;
+
+/** Orders held column by column: in memory as an OrderBatch, or mapped from an OrderColumnFile. */
+interface OrderColumns {
+    int size();
+
+    /** Same result as aggregating the materialized orders. */
+    SummaryAccumulator summarize();
+
+    /**
+     * Rows with {@code totalCents >= thresholdCents}, in row order, materialized. Blocks whose
+     * zone maps rule out a match are skipped without reading their rows; {@code scans} counts both.
+     */
+    List<Order> filterHighValue(long thresholdCents, ZoneMaps.Scans scans);
+
+    default List<Order> filterHighValue(long thresholdCents) {
+        return filterHighValue(thresholdCents, new ZoneMaps.Scans());
+    }
+
+    /**
+     * Rows timestamped in [{@code fromEpochSecond}, {@code toEpochSecond}), in row order,
+     * materialized; rows whose timestamp did not parse never match. Skips blocks as
+     * {@link #filterHighValue(long, ZoneMaps.Scans)} does.
+     */
+    List<Order> between(long fromEpochSecond, long toEpochSecond, ZoneMaps.Scans scans);
+}
@@ -0,0 +1,267 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+final class OrderCsvParser {
+    static final byte COMMA = ',';
+    static final byte LF = '\n';
+    static final byte CR = '\r';
+    static final long BAD_INT = Long.MIN_VALUE;
+
+    private static final int MAX_FAST_DIGITS = 18;
+    private static final int MAX_EXPONENT = 999_999;
+    static final int DICTIONARY_LIMIT = 1 << 16;
+
+    private final ColumnPlan plan;
+    private final RejectCounts rejects;
+    private final long minTotalCents;
+    private long valid;
+    private final int width;
+    private final int[] fieldStart;
+    private final int[] fieldEnd;
+    private byte[] scratch = new byte[64];
+    // interned category and customer_id strings; capped so long streams stay bounded
+    private final Dictionary categories = new Dictionary(DICTIONARY_LIMIT);
+    private final Dictionary customers = new Dictionary(DICTIONARY_LIMIT);
+
+    OrderCsvParser(String[] header) {
+        this(new ColumnPlan(header, ColumnPlan.ALL_COLUMNS), new RejectCounts());
+    }
+
+    OrderCsvParser(ColumnPlan plan, RejectCounts rejects) {
+        this(plan, rejects, Long.MIN_VALUE);
+    }
+
+    /**
+     * A parser that only emits rows whose total is at least {@code minTotalCents}. The test runs
+     * on the decoded price and quantity, so rows below it never get their other fields decoded.
+     */
+    OrderCsvParser(ColumnPlan plan, RejectCounts rejects, long minTotalCents) {
+        this.plan = plan;
+        this.rejects = rejects;
+        this.minTotalCents = minTotalCents;
+        width = plan.width();
+        fieldStart = new int[width];
+        fieldEnd = new int[width];
+    }
+
+    static String[] parseHeader(ByteBuffer buf, int from, int to) {
+        if (to > from && buf.get(to - 1) == CR) to--;
+        byte[] b = new byte[to - from];
+        buf.get(from, b, 0, b.length);
+        return new String(b, StandardCharsets.UTF_8).split(",");
+    }
+
+    /**
+     * Receives one input line as the raw bytes {@code buf[from, to)}, including its terminator
+     * (LF or CRLF) when it has one; only the input's last line can lack it.
+     */
+    interface LineSink {
+        void accept(ByteBuffer buf, int from, int to);
+    }
+
+    /** Rows seen so far that passed validation, whether or not they met the minimum total. */
+    long validRows() {
+        return valid;
+    }
+
+    /** Parses the complete lines in {@code buf[from, to)}; returns the number of orders emitted. */
+    int parse(ByteBuffer buf, int from, int to, Consumer<Order> sink) {
+        return parse(buf, from, to, sink, null, null, Long.MIN_VALUE);
+    }
+
+    /** Appends the complete lines in {@code buf[from, to)} to {@code batch} without building Orders. */
+    int parse(ByteBuffer buf, int from, int to, OrderBatch batch) {
+        return parse(buf, from, to, null, batch, null, Long.MIN_VALUE);
+    }
+
+    /** Hands the lines of the selected rows in {@code buf[from, to)} to {@code lines} unchanged. */
+    int parse(ByteBuffer buf, int from, int to, LineSink lines) {
+        return parse(buf, from, to, null, null, lines, Long.MIN_VALUE);
+    }
+
+    /**
+     * Feeds the selected rows to {@code sink} and, in the same pass, hands the lines of those
+     * with a total of at least {@code lineMinTotalCents} to {@code lines} unchanged.
+     */
+    int parse(ByteBuffer buf, int from, int to, Consumer<Order> sink, long lineMinTotalCents, LineSink lines) {
+        return parse(buf, from, to, sink, null, lines, lineMinTotalCents);
+    }
+
+    private int parse(ByteBuffer buf, int from, int to, Consumer<Order> sink, OrderBatch batch, LineSink lines,
+                      long lineMinTotalCents) {
+        Dictionary cats = batch != null ? batch.categories() : categories;
+        Dictionary custs = batch != null ? batch.customers() : customers;
+        int emitted = 0;
+        int pos = from;
+        while (pos < to) {
+            int n = 0;
+            int lineStart = pos;
+            int fieldFrom = pos;
+            int lineEnd = to;
+            for (int i = pos; i < to; i++) {
+                byte b = buf.get(i);
+                if (b == COMMA) {
+                    if (n < width) { fieldStart[n] = fieldFrom; fieldEnd[n] = i; }
+                    n++;
+                    fieldFrom = i + 1;
+                } else if (b == LF) {
+                    lineEnd = i;
+                    break;
+                }
+            }
+            int contentEnd = (lineEnd > fieldFrom && buf.get(lineEnd - 1) == CR) ? lineEnd - 1 : lineEnd;
+            if (n < width) { fieldStart[n] = fieldFrom; fieldEnd[n] = contentEnd; }
+            n++;
+            pos = lineEnd + 1;
+
+            if (n == 1 && contentEnd == fieldFrom) continue; // blank line
+
+            // malformed rows are reported through return codes and counted, never thrown
+            int p = plan.position(ColumnPlan.UNIT_PRICE), q = plan.position(ColumnPlan.QUANTITY);
+            if (p >= n || q >= n) {
+                rejects.add(RejectCounts.Reason.SHORT_ROW);
+                continue;
+            }
+            long cents = Money.decodeCents(buf, fieldStart[p], fieldEnd[p]);
+            if (cents == Money.MALFORMED) {
+                rejects.add(RejectCounts.Reason.BAD_PRICE);
+                continue;
+            }
+            long quantity = decodeInt(buf, fieldStart[q], fieldEnd[q]);
+            if (quantity == BAD_INT) {
+                rejects.add(RejectCounts.Reason.BAD_QUANTITY);
+                continue;
+            }
+            BigDecimal unitPrice = null;
+            long total;
+            if (cents == Money.NOT_CENTS) {
+                unitPrice = decodeDecimal(buf, fieldStart[p], fieldEnd[p]);
+                total = Money.toCents(unitPrice.multiply(BigDecimal.valueOf(quantity)).setScale(2, RoundingMode.HALF_UP));
+            } else {
+                total = Money.checkedTimes(cents, (int) quantity);
+            }
+            if (total == Money.NOT_CENTS) {
+                rejects.add(RejectCounts.Reason.TOTAL_OUT_OF_RANGE);
+                continue;
+            }
+            valid++;
+            if (total < minTotalCents) continue;
+            if (lines != null && total >= lineMinTotalCents) lines.accept(buf, lineStart, lineEnd < to ? lineEnd + 1 : to);
+            if (sink == null && batch == null) {
+                emitted++;
+                continue;
+            }
+            int category = code(buf, ColumnPlan.CATEGORY, n, cats);
+            int customer = code(buf, ColumnPlan.CUSTOMER_ID, n, custs);
+            if (batch != null) {
+                int t = present(ColumnPlan.TIMESTAMP, n);
+                long epoch = t < 0 ? Timestamps.NONE : Timestamps.parse(buf, fieldStart[t], fieldEnd[t]);
+                String rawTimestamp = epoch == Timestamps.NONE ? field(buf, ColumnPlan.TIMESTAMP, n) : null;
+                int id = present(ColumnPlan.ORDER_ID, n);
+                batch.append(buf, id < 0 ? -1 : fieldStart[id], id < 0 ? -1 : fieldEnd[id], customer, category,
+                        cents, unitPrice, (int) quantity, epoch, rawTimestamp);
+            } else {
+                String orderId = field(buf, ColumnPlan.ORDER_ID, n);
+                String customerId = customer != Dictionary.FULL ? custs.decode(customer) : field(buf, ColumnPlan.CUSTOMER_ID, n);
+                String cat = category != Dictionary.FULL ? cats.decode(category) : field(buf, ColumnPlan.CATEGORY, n);
+                String timestamp = field(buf, ColumnPlan.TIMESTAMP, n);
+                sink.accept(unitPrice == null
+                        ? new Order(orderId, customerId, cat, cents, (int) quantity, timestamp)
+                        : new Order(orderId, customerId, cat, unitPrice, (int) quantity, timestamp));
+            }
+            emitted++;
+        }
+        return emitted;
+    }
+
+    /** Row position of {@code column}, or -1 when it is not decoded or the row is too short. */
+    private int present(int column, int n) {
+        int c = plan.position(column);
+        return c < n ? c : -1;
+    }
+
+    private int code(ByteBuffer buf, int column, int n, Dictionary dict) {
+        int c = present(column, n);
+        return c < 0 ? dict.encode((String) null) : dict.encode(buf, fieldStart[c], fieldEnd[c]);
+    }
+
+    private String field(ByteBuffer buf, int column, int n) {
+        int c = present(column, n);
+        if (c < 0) return null;
+        int len = fieldEnd[c] - fieldStart[c];
+        if (len > scratch.length) scratch = new byte[Math.max(len, scratch.length * 2)];
+        buf.get(fieldStart[c], scratch, 0, len);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /** Same grammar as {@code Integer.parseInt} for ASCII input; {@link #BAD_INT} when malformed. */
+    static long decodeInt(ByteBuffer buf, int from, int to) {
+        if (from == to) return BAD_INT;
+        boolean neg = false;
+        byte b = buf.get(from);
+        if (b == '-' || b == '+') {
+            neg = b == '-';
+            if (++from == to) return BAD_INT;
+        }
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) return BAD_INT;
+            v = v * 10 + d;
+            if (v > (long) Integer.MAX_VALUE + 1) return BAD_INT;
+        }
+        if (neg) v = -v;
+        return v < Integer.MIN_VALUE || v > Integer.MAX_VALUE ? BAD_INT : v;
+    }
+
+    /** Same grammar and result as {@code new BigDecimal(String)} for ASCII input; null when malformed. */
+    static BigDecimal decodeDecimal(ByteBuffer buf, int from, int to) {
+        int i = from;
+        if (i == to) return null;
+        boolean neg = false;
+        byte b = buf.get(i);
+        if (b == '-' || b == '+') { neg = b == '-'; i++; }
+        long unscaled = 0;
+        int significant = 0, digits = 0, fraction = 0;
+        boolean dot = false;
+        for (; i < to; i++) {
+            b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                digits++;
+                if (dot) fraction++;
+                if (significant > 0 || b != '0') significant++;
+                if (significant <= MAX_FAST_DIGITS) unscaled = unscaled * 10 + (b - '0');
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) return null;
+        long exponent = 0;
+        if (i < to) {
+            if (b != 'e' && b != 'E') return null;
+            exponent = decodeInt(buf, i + 1, to);
+            if (exponent == BAD_INT || Math.abs(exponent) > MAX_EXPONENT) return null;
+        }
+        if (significant > MAX_FAST_DIGITS) {
+            char[] chars = new char[to - from];
+            for (int k = 0; k < chars.length; k++) chars[k] = (char) buf.get(from + k);
+            return new BigDecimal(chars);
+        }
+        return BigDecimal.valueOf(neg ? -unscaled : unscaled, (int) (fraction - exponent));
+    }
+
+    static int indexOf(ByteBuffer buf, byte target, int from, int to) {
+        for (int i = from; i < to; i++) if (buf.get(i) == target) return i;
+        return -1;
+    }
+
+    static int lastIndexOf(ByteBuffer buf, byte target, int from, int to) {
+        for (int i = to - 1; i >= from; i--) if (buf.get(i) == target) return i;
+        return -1;
+    }
+}
@@ -0,0 +1,190 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class OrderCsvParserTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static ByteBuffer bytes(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testDecodeDecimalMatchesBigDecimal() {
+        for (String s : new String[]{"12.99", "9.5", "-0.00", "+1.5", ".5", "5.", "1E+2", "2.5e-3",
+                "12345678901234567890.12", "007.10"}) {
+            ByteBuffer b = bytes(s);
+            assertEquals(s, new BigDecimal(s), OrderCsvParser.decodeDecimal(b, 0, b.limit()));
+        }
+        for (String s : new String[]{"", "abc", ".", "-", "1.2.3", " 12.99", "1e", "12,5"}) {
+            ByteBuffer b = bytes(s);
+            assertNull(s, OrderCsvParser.decodeDecimal(b, 0, b.limit()));
+        }
+    }
+
+    @Test
+    public void testParseSkipsMalformedRows() {
+        OrderCsvParser parser = new OrderCsvParser(
+                "quantity,order_id,customer_id,category,unit_price,timestamp".split(","));
+        ByteBuffer b = bytes("2,O1,C1,Books,12.50,t1\r\nx,O2,C2,Toys,1.00,t2\n\n3,O3,C3,Toys,oops,t3\n1,O4,C4,Toys,5.00,t4");
+        List<Order> out = new ArrayList<>();
+        assertEquals(2, parser.parse(b, 0, b.limit(), out::add));
+        assertEquals("O1", out.get(0).getOrderId());
+        assertEquals("t1", out.get(0).getTimestamp());
+        assertEquals(new BigDecimal("25.00"), out.get(0).total());
+        assertEquals("t4", out.get(1).getTimestamp());
+    }
+
+    @Test
+    public void testTotalsUpToTheLongRangeAreKept() {
+        RejectCounts rejects = new RejectCounts();
+        OrderCsvParser parser = new OrderCsvParser(new ColumnPlan(
+                "order_id,customer_id,category,unit_price,quantity,timestamp".split(","), ColumnPlan.ALL_COLUMNS), rejects);
+        ByteBuffer b = bytes("O9,C9,Books,12345678901234567.89,1,t\nO10,C9,Books,92233720368547758.07,1,t\n");
+        List<Order> out = new ArrayList<>();
+        assertEquals(2, parser.parse(b, 0, b.limit(), out::add));
+        assertEquals(1234567890123456789L, out.get(0).totalCents());
+        assertEquals(Long.MAX_VALUE, out.get(1).totalCents());
+        assertEquals(0, rejects.total());
+    }
+
+    @Test
+    public void testRejectsAreCountedByReason() {
+        RejectCounts rejects = new RejectCounts();
+        OrderCsvParser parser = new OrderCsvParser(new ColumnPlan(
+                "order_id,customer_id,category,unit_price,quantity,timestamp".split(","), ColumnPlan.ALL_COLUMNS), rejects);
+        ByteBuffer b = bytes("O1,C1,Books,1.00,1,t\nO2,C1\n\r\nO3,C1,Books,x,1,t\nO4,C1,Books,1.00,1.5,t\n"
+                + "O5,C1,Books,92233720368547758.07,2,t\nO6,C1,Books,2.00\n");
+        assertEquals(1, parser.parse(b, 0, b.limit(), o -> {}));
+        assertEquals(2, rejects.get(RejectCounts.Reason.SHORT_ROW));
+        assertEquals(1, rejects.get(RejectCounts.Reason.BAD_PRICE));
+        assertEquals(1, rejects.get(RejectCounts.Reason.BAD_QUANTITY));
+        assertEquals(1, rejects.get(RejectCounts.Reason.TOTAL_OUT_OF_RANGE));
+        assertEquals(5, rejects.total());
+        assertEquals("short row: 2, bad price: 1, bad quantity: 1, total out of range: 1", rejects.toString());
+    }
+
+    @Test
+    public void testMinTotalFiltersBeforeBuildingRows() {
+        RejectCounts rejects = new RejectCounts();
+        OrderCsvParser parser = new OrderCsvParser(new ColumnPlan(
+                "order_id,customer_id,category,unit_price,quantity,timestamp".split(","), ColumnPlan.ALL_COLUMNS),
+                rejects, 10000);
+        ByteBuffer b = bytes("O1,C1,Books,99.99,1,t\nO2,C1,Books,50.00,2,t\nO3,C1,Books,x,9,t\nO4,C1,Books,33.333,3,t\n");
+        List<Order> out = new ArrayList<>();
+        assertEquals(2, parser.parse(b, 0, b.limit(), out::add));
+        assertEquals("O2", out.get(0).getOrderId());
+        assertEquals("O4", out.get(1).getOrderId());
+        assertEquals(3, parser.validRows());
+        assertEquals(1, rejects.total());
+    }
+
+    @Test
+    public void testSelectedLinesPassThroughUnchanged() {
+        OrderCsvParser parser = new OrderCsvParser(new ColumnPlan(
+                "order_id,customer_id,category,unit_price,quantity,timestamp".split(","), 0), new RejectCounts(), 10000);
+        ByteBuffer b = bytes("O1,C1,Books,99.99,1,t\r\nO2,C1,Books,50.005,2,t\r\nO3,C1,Books,x,9,t\nO4,C1,Books,1E+2,1,t");
+        List<String> lines = new ArrayList<>();
+        assertEquals(2, parser.parse(b, 0, b.limit(), (buf, from, to) -> {
+            byte[] line = new byte[to - from];
+            buf.get(from, line);
+            lines.add(new String(line, StandardCharsets.UTF_8));
+        }));
+        assertEquals(Arrays.asList("O2,C1,Books,50.005,2,t\r\n", "O4,C1,Books,1E+2,1,t"), lines);
+    }
+
+    @Test
+    public void testSummaryPlanSkipsUnusedColumns() {
+        ColumnPlan plan = new ColumnPlan(
+                "order_id,customer_id,category,unit_price,quantity,timestamp".split(","), ColumnPlan.SUMMARY_COLUMNS);
+        assertEquals(5, plan.width());
+        assertEquals(-1, plan.position(ColumnPlan.TIMESTAMP));
+        ByteBuffer b = bytes("O1,C1,Books,12.50,2,t1\n");
+        List<Order> out = new ArrayList<>();
+        new OrderCsvParser(plan, new RejectCounts()).parse(b, 0, b.limit(), out::add);
+        assertEquals("Books", out.get(0).getCategory());
+        assertNull(out.get(0).getOrderId());
+        assertNull(out.get(0).getTimestamp());
+    }
+
+    @Test
+    public void testRepeatedValuesShareOneString() {
+        OrderCsvParser parser = new OrderCsvParser(
+                "order_id,customer_id,category,unit_price,quantity,timestamp".split(","));
+        ByteBuffer b = bytes("O1,C1,Books,1.00,1,t\nO2,C1,Books,2.00,1,t\nO3,C2,Toys,3.00,1,t\n");
+        List<Order> out = new ArrayList<>();
+        parser.parse(b, 0, b.limit(), out::add);
+        assertSame(out.get(0).getCategory(), out.get(1).getCategory());
+        assertSame(out.get(0).getCustomerId(), out.get(1).getCustomerId());
+        assertEquals("Toys", out.get(2).getCategory());
+
+        Dictionary dict = new Dictionary(1);
+        assertEquals(0, dict.encode(b, 6, 11));
+        assertEquals(0, dict.encode("Books"));
+        assertEquals(Dictionary.FULL, dict.encode("Toys"));
+    }
+
+    @Test
+    public void testParallelLoadMatchesSequentialScan() throws Exception {
+        // CRLF rows, some malformed, over several MIN_CHUNKs, ending without a newline
+        StringBuilder sb = new StringBuilder("order_id,customer_id,category,unit_price,quantity,timestamp\r\n");
+        int rows = (int) (6 * MappedOrderFile.MIN_CHUNK / 50);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) sb.append("\r\n");
+            if (i % 89 == 0) {
+                sb.append("O").append(i).append(",C").append(i % 13);
+                continue;
+            }
+            sb.append("O").append(i).append(",C").append(i % 13).append(i % 3 == 0 ? ",Toys," : ",Books,")
+                    .append(i % 97 == 0 ? "n/a" : (i % 500) + "." + (i % 100 < 10 ? "0" : "") + i % 100)
+                    .append(',').append(i % 7 + 1).append(",2025-03-01T10:15:00Z");
+        }
+        Path csv = tmp.getRoot().toPath().resolve("orders.csv");
+        Files.writeString(csv, sb);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (FileChannel ch = FileChannel.open(csv)) {
+            long dataStart = sb.indexOf("\n") + 1, size = ch.size();
+            long[] bounds = MappedOrderFile.split(ch, dataStart, size, pool.getParallelism());
+            assertTrue(bounds.length > 2);
+            boolean straddled = false;
+            for (int k = 1; k + 1 < bounds.length; k++) {
+                long even = dataStart + (size - dataStart) / (bounds.length - 1) * k;
+                straddled |= sb.charAt((int) even - 1) != '\n';
+                assertEquals('\n', sb.charAt((int) bounds[k] - 1));
+            }
+            assertTrue("no row straddles a chunk boundary", straddled);
+        }
+
+        RejectCounts seqRejects = new RejectCounts(), parRejects = new RejectCounts();
+        List<Order> seq = new ArrayList<>();
+        MappedOrderFile.forEach(csv, ColumnPlan.ALL_COLUMNS, seq::add, seqRejects);
+        List<Order> par = MappedOrderFile.load(csv, pool, ColumnPlan.ALL_COLUMNS, parRejects);
+        pool.shutdown();
+        assertEquals(seq.size(), par.size());
+        for (int i = 0; i < seq.size(); i++) {
+            Order a = seq.get(i), b = par.get(i);
+            assertEquals(a.getOrderId(), b.getOrderId());
+            assertEquals(a.getCustomerId(), b.getCustomerId());
+            assertEquals(a.getCategory(), b.getCategory());
+            assertEquals(a.getUnitPrice(), b.getUnitPrice());
+            assertEquals(a.getQuantity(), b.getQuantity());
+            assertEquals(a.getTimestamp(), b.getTimestamp());
+        }
+        assertEquals("O" + (rows - 1), par.get(par.size() - 1).getOrderId());
+        assertEquals("2025-03-01T10:15:00Z", par.get(par.size() - 1).getTimestamp());
+        for (RejectCounts.Reason r : RejectCounts.Reason.values()) assertEquals(r.name(), seqRejects.get(r), parRejects.get(r));
+        assertTrue(parRejects.get(RejectCounts.Reason.SHORT_ROW) > 0);
+        assertTrue(parRejects.get(RejectCounts.Reason.BAD_PRICE) > 0);
+    }
+}
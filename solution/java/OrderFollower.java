@@ -0,0 +1,240 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails a growing orders CSV. Only complete lines past the last processed byte offset are
+ * parsed; they are folded into a running summary and their high-value rows appended to the
+ * export. Every checkpoint rewrites the summary, flushes the export and then saves the
+ * offset, aggregate and export length to a state file, so a restarted follower truncates the
+ * export back to that length and carries on without double counting.
+ *
+ * <p>A checkpoint is taken once {@code flushRows} new rows have been read or {@code flushMillis}
+ * have passed with rows pending. An input that shrinks or is replaced starts over from byte 0.
+ */
+final class OrderFollower implements Closeable {
+    private static final int BUFFER = StreamedOrderFile.BUFFER;
+
+    private final Path input, summary, state;
+    private final Path csv; // null: summary only
+    private final long thresholdCents;
+    private long flushRows = 10_000;
+    private long flushNanos = TimeUnit.SECONDS.toNanos(1);
+
+    private ByteBuffer buf = ByteBuffer.allocate(BUFFER);
+    private FileChannel csvChannel;
+    private HighValueCsvWriter hv;
+
+    // the state a checkpoint persists
+    private long offset;
+    private Object fileKey;
+    private String[] header;
+    private SummaryAccumulator acc;
+    private RejectCounts rejects;
+
+    private OrderCsvParser parser;
+    private long pendingRows;
+    private long lastCheckpoint = System.nanoTime();
+    private volatile boolean running;
+
+    /** Resumes from {@code state} when it exists, otherwise starts at the top of {@code input}. */
+    OrderFollower(Path input, BigDecimal threshold, Path summary, Path csv, Path state) throws IOException {
+        this.input = input;
+        this.summary = summary;
+        this.csv = csv;
+        this.state = state;
+        this.thresholdCents = Money.ceilCents(threshold);
+        if (Gzip.isGzip(input)) throw new IllegalArgumentException("Cannot follow a gzip file: " + input);
+        long csvBytes = 0;
+        if (Files.exists(state)) {
+            csvBytes = restore();
+        } else {
+            reset();
+        }
+        if (csv != null) openCsv(csvBytes);
+    }
+
+    OrderFollower flushEvery(long rows, long millis) {
+        if (rows < 1 || millis < 1) throw new IllegalArgumentException("flush interval must be >= 1");
+        flushRows = rows;
+        flushNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return this;
+    }
+
+    /**
+     * Parses whatever complete lines have been appended since the last call; a trailing line
+     * without its LF waits for the next one. Returns the number of new valid rows.
+     */
+    synchronized long poll() throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(input, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return 0; // rotated away; the replacement will be picked up when it appears
+        }
+        if (attrs.size() < offset || offset > 0 && !Objects.equals(String.valueOf(attrs.fileKey()), fileKey)) {
+            System.err.println("Input was truncated or replaced; starting over");
+            reset();
+            if (csv != null) openCsv(0);
+        }
+        long before = acc.count();
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            if (offset == 0) fileKey = String.valueOf(attrs.fileKey());
+            while (true) {
+                buf.clear();
+                int end = 0;
+                for (int n; buf.hasRemaining() && (n = in.read(buf, offset + end)) > 0; ) end += n;
+                int limit = OrderCsvParser.lastIndexOf(buf, OrderCsvParser.LF, 0, end) + 1;
+                if (limit == 0) {
+                    if (end < buf.capacity()) break;
+                    buf = ByteBuffer.allocate(buf.capacity() * 2); // one line longer than the buffer
+                    continue;
+                }
+                int from = 0;
+                if (parser == null) {
+                    int nl = OrderCsvParser.indexOf(buf, OrderCsvParser.LF, 0, limit);
+                    header = OrderCsvParser.parseHeader(buf, 0, nl);
+                    newParser();
+                    from = nl + 1;
+                }
+                long valid = parser.validRows();
+                parser.parse(buf, from, limit, this::accept);
+                offset += limit;
+                pendingRows += parser.validRows() - valid;
+                if (pendingRows >= flushRows) checkpoint();
+                if (end < buf.capacity()) break;
+            }
+        }
+        return acc.count() - before;
+    }
+
+    /** Polls every {@code pollMillis}, checkpointing as configured, until {@link #stop()}. */
+    void run(long pollMillis) throws IOException {
+        running = true;
+        while (running) {
+            poll();
+            if (pendingRows > 0 && System.nanoTime() - lastCheckpoint >= flushNanos) checkpoint();
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        checkpoint();
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    /** Writes summary.json, flushes the export and saves the state, in that order. */
+    synchronized void checkpoint() throws IOException {
+        long csvBytes = 0;
+        if (hv != null) {
+            hv.flush();
+            csvChannel.force(false);
+            csvBytes = csvChannel.size();
+        }
+        if (acc.count() > 0) JsonWriter.replace(summary, acc.toSummary());
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("offset", offset);
+        s.put("file_key", fileKey);
+        s.put("header", header == null ? null : List.of(header));
+        s.put("threshold_cents", thresholdCents);
+        s.put("high_value_bytes", csvBytes);
+        s.put("rejects", rejects.toMap());
+        s.put("categories", acc.toCategories());
+        JsonWriter.replace(state, s);
+        pendingRows = 0;
+        lastCheckpoint = System.nanoTime();
+    }
+
+    long validRows() {
+        return acc.count();
+    }
+
+    RejectCounts rejects() {
+        return rejects;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (hv != null) hv.close();
+        hv = null;
+    }
+
+    private void accept(Order o) {
+        acc.accept(o);
+        if (hv != null && o.totalCents() >= thresholdCents) hv.accept(o);
+    }
+
+    private void reset() {
+        offset = 0;
+        fileKey = null;
+        header = null;
+        parser = null;
+        acc = new SummaryAccumulator();
+        rejects = new RejectCounts();
+    }
+
+    private long restore() throws IOException {
+        Map<?, ?> s;
+        try {
+            s = (Map<?, ?>) JsonReader.parse(Files.readString(state));
+            if (((BigDecimal) s.get("threshold_cents")).longValueExact() != thresholdCents) {
+                throw new IllegalArgumentException("State file " + state + " was written for another threshold;"
+                        + " delete it to start over");
+            }
+            reset();
+            offset = ((BigDecimal) s.get("offset")).longValueExact();
+            fileKey = s.get("file_key");
+            rejects = RejectCounts.fromMap((Map<?, ?>) s.get("rejects"));
+            acc = SummaryAccumulator.fromCategories((List<?>) s.get("categories"));
+            if (s.get("header") != null) {
+                header = ((List<?>) s.get("header")).toArray(new String[0]);
+                newParser();
+            }
+            return ((BigDecimal) s.get("high_value_bytes")).longValueExact();
+        } catch (ClassCastException | NullPointerException | ArithmeticException e) {
+            throw new IllegalArgumentException("Corrupt state file " + state);
+        }
+    }
+
+    private void newParser() {
+        parser = new OrderCsvParser(new ColumnPlan(header, csv == null
+                ? ColumnPlan.SUMMARY_COLUMNS : ColumnPlan.ALL_COLUMNS), rejects);
+    }
+
+    /**
+     * Opens the export for appending, dropping anything written after the last checkpoint. An
+     * export shorter than the checkpoint has lost rows already counted, so it is rebuilt from
+     * the top of the input, as for a truncated input.
+     */
+    private void openCsv(long bytes) throws IOException {
+        close();
+        csvChannel = FileChannel.open(csv, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (csvChannel.size() < bytes) {
+            System.err.println("High-value export " + csv + " is shorter than its checkpoint; starting over");
+            reset();
+            bytes = 0;
+        }
+        csvChannel.truncate(bytes);
+        csvChannel.position(bytes);
+        hv = new HighValueCsvWriter(Channels.newWriter(csvChannel, StandardCharsets.UTF_8), bytes == 0);
+    }
+}
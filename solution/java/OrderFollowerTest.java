@@ -0,0 +1,92 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class OrderFollowerTest {
+    private static final String HEADER = "order_id,customer_id,category,unit_price,quantity,timestamp\n";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static void append(Path p, String s) throws Exception {
+        Files.writeString(p, s, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    public void testResumesFromCheckpointWithoutDoubleCounting() throws Exception {
+        Path in = tmp.getRoot().toPath().resolve("orders.csv");
+        Path summary = tmp.getRoot().toPath().resolve("summary.json");
+        Path csv = tmp.getRoot().toPath().resolve("hv.csv");
+        Path state = tmp.getRoot().toPath().resolve("state.json");
+        BigDecimal threshold = new BigDecimal("100");
+
+        append(in, HEADER + "O1,C1,Books,12.50,2,t1\nO2,C2,Toys,150.00,1,t2\nO3,C3,To");
+        try (OrderFollower f = new OrderFollower(in, threshold, summary, csv, state)) {
+            assertEquals(2, f.poll());
+            assertEquals(0, f.poll());
+            f.checkpoint();
+            append(in, "ys,oops,1,t3\nO4,C4,Books,200.00,1,t4\n");
+            assertEquals(1, f.poll()); // read but never checkpointed: redone after the restart
+        }
+        append(in, "O5,C5,Toys,5.00,3,t5\n");
+        try (OrderFollower f = new OrderFollower(in, threshold, summary, csv, state)) {
+            assertEquals(2, f.poll());
+            assertEquals(4, f.validRows());
+            assertEquals(1, f.rejects().get(RejectCounts.Reason.BAD_PRICE));
+            f.checkpoint();
+        }
+
+        Path expectedCsv = tmp.getRoot().toPath().resolve("expected.csv");
+        assertEquals(4, OrderProcessor.streamOrders(in.toString(), threshold,
+                tmp.getRoot().toPath().resolve("expected.json").toString(), expectedCsv.toString(), new RejectCounts()));
+        assertEquals(Files.readString(expectedCsv), Files.readString(csv));
+        assertEquals(Files.readString(tmp.getRoot().toPath().resolve("expected.json")), Files.readString(summary));
+    }
+
+    @Test
+    public void testTruncatedInputStartsOver() throws Exception {
+        Path in = tmp.getRoot().toPath().resolve("orders.csv");
+        Path summary = tmp.getRoot().toPath().resolve("summary.json");
+        append(in, HEADER + "O1,C1,Books,12.50,2,t1\nO2,C2,Toys,150.00,1,t2\n");
+        try (OrderFollower f = new OrderFollower(in, new BigDecimal("100"), summary, null,
+                tmp.getRoot().toPath().resolve("state.json"))) {
+            assertEquals(2, f.poll());
+            Files.writeString(in, HEADER + "O9,C9,Home,1.00,1,t9\n");
+            assertEquals(1, f.poll());
+            f.checkpoint();
+            Map<?, ?> s = (Map<?, ?>) JsonReader.parse(Files.readString(summary));
+            assertEquals(Map.of("Home", new BigDecimal(1)), s.get("orders_per_category"));
+        }
+    }
+
+    @Test
+    public void testLostExportIsRebuilt() throws Exception {
+        Path root = tmp.getRoot().toPath();
+        Path in = root.resolve("orders.csv"), summary = root.resolve("summary.json");
+        Path csv = root.resolve("hv.csv"), state = root.resolve("state.json");
+        BigDecimal threshold = new BigDecimal("100");
+        append(in, HEADER + "O1,C1,Books,120.00,2,t1\nO2,C2,Toys,150.00,1,t2\n");
+        try (OrderFollower f = new OrderFollower(in, threshold, summary, csv, state)) {
+            assertEquals(2, f.poll());
+            f.checkpoint();
+        }
+        Files.delete(csv);
+        append(in, "O3,C3,Toys,300.00,1,t3\n");
+        try (OrderFollower f = new OrderFollower(in, threshold, summary, csv, state)) {
+            assertEquals(3, f.poll());
+            assertEquals(3, f.validRows());
+            f.checkpoint();
+        }
+        Path expectedCsv = root.resolve("expected.csv");
+        OrderProcessor.streamOrders(in.toString(), threshold, root.resolve("expected.json").toString(),
+                expectedCsv.toString(), new RejectCounts());
+        assertEquals(Files.readString(expectedCsv), Files.readString(csv));
+        assertEquals(Files.readString(root.resolve("expected.json")), Files.readString(summary));
+    }
+}
@@ -0,0 +1,267 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic orders CSVs in the schema OrderProcessor reads. The same seed and settings
+ * always give the same bytes. Rows are encoded straight into a byte buffer, so large files are
+ * bounded by disk speed rather than formatting.
+ *
+ * <pre>
+ *   new OrderGenerator(42).rows(1_000_000).customers(50_000).customerSkew(1.1).malformedRatio(0.01)
+ *           .write(Paths.get("orders-1m.csv"));
+ * </pre>
+ */
+final class OrderGenerator {
+    enum PriceDistribution {
+        UNIFORM,
+        /** Log-normal around the geometric mean of the bounds, spanning them at +-3 sigma, clamped. */
+        LOG_NORMAL
+    }
+
+    static final String[] DEFAULT_CATEGORIES = {"Books", "Electronics", "Toys", "Clothing", "Home & Garden"};
+    private static final int BUFFER = 1 << 20;
+    private static final int MALFORMED_KINDS = 4;
+
+    private final long seed;
+    private long rows = 1000;
+    private int categories = DEFAULT_CATEGORIES.length;
+    private int customers = 1000;
+    private double categorySkew;
+    private double customerSkew;
+    private long minPriceCents = 100;
+    private long maxPriceCents = 50_000;
+    private PriceDistribution priceDistribution = PriceDistribution.UNIFORM;
+    private int maxQuantity = 5;
+    private double malformedRatio;
+    private long fromEpoch = Instant.parse("2025-01-01T00:00:00Z").getEpochSecond();
+    private long toEpoch = Instant.parse("2026-01-01T00:00:00Z").getEpochSecond();
+
+    OrderGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    OrderGenerator rows(long rows) {
+        if (rows < 0) throw new IllegalArgumentException("rows must be >= 0");
+        this.rows = rows;
+        return this;
+    }
+
+    /** Number of distinct categories; the first five are the real ones, then Category-6 and up. */
+    OrderGenerator categories(int categories) {
+        if (categories < 1) throw new IllegalArgumentException("categories must be >= 1");
+        this.categories = categories;
+        return this;
+    }
+
+    OrderGenerator customers(int customers) {
+        if (customers < 1) throw new IllegalArgumentException("customers must be >= 1");
+        this.customers = customers;
+        return this;
+    }
+
+    /** Zipf exponent for how often each category is picked; 0 is uniform. */
+    OrderGenerator categorySkew(double skew) {
+        if (skew < 0) throw new IllegalArgumentException("skew must be >= 0");
+        this.categorySkew = skew;
+        return this;
+    }
+
+    /** Zipf exponent for how often each customer is picked; 0 is uniform. */
+    OrderGenerator customerSkew(double skew) {
+        if (skew < 0) throw new IllegalArgumentException("skew must be >= 0");
+        this.customerSkew = skew;
+        return this;
+    }
+
+    OrderGenerator prices(BigDecimal min, BigDecimal max, PriceDistribution distribution) {
+        long lo = Money.toCents(min), hi = Money.toCents(max);
+        if (lo == Money.NOT_CENTS || hi == Money.NOT_CENTS || lo < 1 || hi < lo) {
+            throw new IllegalArgumentException("prices must be whole cents with 0 < min <= max");
+        }
+        minPriceCents = lo;
+        maxPriceCents = hi;
+        priceDistribution = distribution;
+        return this;
+    }
+
+    OrderGenerator maxQuantity(int maxQuantity) {
+        if (maxQuantity < 1) throw new IllegalArgumentException("maxQuantity must be >= 1");
+        this.maxQuantity = maxQuantity;
+        return this;
+    }
+
+    /** Fraction of rows written malformed: a bad price, bad quantity, missing price or a short row. */
+    OrderGenerator malformedRatio(double ratio) {
+        if (ratio < 0 || ratio > 1) throw new IllegalArgumentException("malformed ratio must be in [0, 1]");
+        this.malformedRatio = ratio;
+        return this;
+    }
+
+    /** Timestamps are drawn uniformly from {@code [from, to)}. */
+    OrderGenerator timestamps(Instant from, Instant to) {
+        if (!from.isBefore(to)) throw new IllegalArgumentException("timestamp range is empty");
+        fromEpoch = from.getEpochSecond();
+        toEpoch = to.getEpochSecond();
+        Timestamps.format(toEpoch - 1, new byte[20], 0); // fails early for years the format cannot hold
+        return this;
+    }
+
+    void write(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(ch);
+        }
+    }
+
+    void write(WritableByteChannel out) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        byte[][] categoryNames = new byte[categories][];
+        int longest = 0;
+        for (int c = 0; c < categories; c++) {
+            String name = c < DEFAULT_CATEGORIES.length ? DEFAULT_CATEGORIES[c] : "Category-" + (c + 1);
+            categoryNames[c] = name.getBytes(StandardCharsets.UTF_8);
+            longest = Math.max(longest, categoryNames[c].length);
+        }
+        Zipf categoryPick = new Zipf(categories, categorySkew);
+        Zipf customerPick = new Zipf(customers, customerSkew);
+        double logMedian = (Math.log(minPriceCents) + Math.log(maxPriceCents)) / 2;
+        double logSigma = (Math.log(maxPriceCents) - Math.log(minPriceCents)) / 6;
+        int maxRow = 128 + longest;
+
+        byte[] buf = new byte[BUFFER];
+        int pos = ascii(String.join(",", OrderProcessor.REQUIRED), buf, 0);
+        buf[pos++] = '\n';
+        for (long i = 0; i < rows; i++) {
+            if (pos > buf.length - maxRow) {
+                drain(out, buf, pos);
+                pos = 0;
+            }
+            int kind = malformedRatio > 0 && rnd.nextDouble() < malformedRatio ? rnd.nextInt(MALFORMED_KINDS) : -1;
+            long cents = priceDistribution == PriceDistribution.UNIFORM
+                    ? rnd.nextLong(minPriceCents, maxPriceCents + 1)
+                    : Math.max(minPriceCents, Math.min(maxPriceCents,
+                            Math.round(Math.exp(logMedian + logSigma * rnd.nextGaussian()))));
+            int quantity = rnd.nextInt(1, maxQuantity + 1);
+            long ts = rnd.nextLong(fromEpoch, toEpoch);
+
+            buf[pos++] = 'O';
+            buf[pos++] = '-';
+            pos = decimal(i + 1, buf, pos);
+            buf[pos++] = ',';
+            buf[pos++] = 'C';
+            buf[pos++] = '-';
+            pos = decimal(customerPick.next(rnd) + 1, buf, pos);
+            buf[pos++] = ',';
+            byte[] cat = categoryNames[categoryPick.next(rnd)];
+            System.arraycopy(cat, 0, buf, pos, cat.length);
+            pos += cat.length;
+            if (kind == 3) { // short row: stops after the category
+                buf[pos++] = '\n';
+                continue;
+            }
+            buf[pos++] = ',';
+            if (kind == 0) {
+                pos = ascii("n/a", buf, pos);
+            } else if (kind != 2) { // kind 2 leaves the price empty
+                pos = decimal(cents / 100, buf, pos);
+                buf[pos++] = '.';
+                buf[pos++] = (byte) ('0' + cents / 10 % 10);
+                buf[pos++] = (byte) ('0' + cents % 10);
+            }
+            buf[pos++] = ',';
+            if (kind == 1) {
+                pos = ascii("x", buf, pos);
+            } else {
+                pos = decimal(quantity, buf, pos);
+            }
+            buf[pos++] = ',';
+            pos = Timestamps.format(ts, buf, pos);
+            buf[pos++] = '\n';
+        }
+        drain(out, buf, pos);
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> argmap = OrderProcessor.parseArgs(args);
+        String output = argmap.get("--output");
+        if (output == null) {
+            System.err.println("Usage: OrderGenerator --output FILE [--rows N] [--seed N] [--categories N]"
+                    + " [--customers N] [--category-skew S] [--customer-skew S] [--min-price P] [--max-price P]"
+                    + " [--price-distribution uniform|log_normal] [--max-quantity N] [--malformed RATIO]"
+                    + " [--from TIMESTAMP] [--to TIMESTAMP]");
+            System.exit(1);
+        }
+        try {
+            OrderGenerator g = new OrderGenerator(Long.parseLong(argmap.getOrDefault("--seed", "42")))
+                    .rows(Long.parseLong(argmap.getOrDefault("--rows", "1000")))
+                    .categories(Integer.parseInt(argmap.getOrDefault("--categories", "5")))
+                    .customers(Integer.parseInt(argmap.getOrDefault("--customers", "1000")))
+                    .categorySkew(Double.parseDouble(argmap.getOrDefault("--category-skew", "0")))
+                    .customerSkew(Double.parseDouble(argmap.getOrDefault("--customer-skew", "0")))
+                    .prices(new BigDecimal(argmap.getOrDefault("--min-price", "1.00")),
+                            new BigDecimal(argmap.getOrDefault("--max-price", "500.00")),
+                            PriceDistribution.valueOf(argmap.getOrDefault("--price-distribution", "uniform").toUpperCase()))
+                    .maxQuantity(Integer.parseInt(argmap.getOrDefault("--max-quantity", "5")))
+                    .malformedRatio(Double.parseDouble(argmap.getOrDefault("--malformed", "0")))
+                    .timestamps(Instant.parse(argmap.getOrDefault("--from", "2025-01-01T00:00:00Z")),
+                            Instant.parse(argmap.getOrDefault("--to", "2026-01-01T00:00:00Z")));
+            g.write(Paths.get(output));
+            System.out.println("Wrote " + g.rows + " rows to " + output);
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Ranks 0..n-1 drawn with probability proportional to 1 / (rank + 1)^s. */
+    private static final class Zipf {
+        private final int n;
+        private final double[] cdf; // null when uniform
+
+        Zipf(int n, double s) {
+            this.n = n;
+            if (s == 0) {
+                cdf = null;
+                return;
+            }
+            cdf = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) cdf[k] = sum += Math.pow(k + 1, -s);
+            for (int k = 0; k < n; k++) cdf[k] /= sum;
+        }
+
+        int next(SplittableRandom rnd) {
+            if (cdf == null) return rnd.nextInt(n);
+            int k = Arrays.binarySearch(cdf, rnd.nextDouble());
+            return Math.min(k < 0 ? -k - 1 : k, n - 1);
+        }
+    }
+
+    private static int decimal(long v, byte[] out, int at) {
+        int len = 1;
+        for (long t = v; t >= 10; t /= 10) len++;
+        for (int i = at + len - 1; i >= at; i--, v /= 10) out[i] = (byte) ('0' + v % 10);
+        return at + len;
+    }
+
+    private static int ascii(String s, byte[] out, int at) {
+        for (int i = 0; i < s.length(); i++) out[at++] = (byte) s.charAt(i);
+        return at;
+    }
+
+    private static void drain(WritableByteChannel out, byte[] buf, int len) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(buf, 0, len);
+        while (b.hasRemaining()) out.write(b);
+    }
+}
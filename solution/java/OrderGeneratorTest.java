@@ -0,0 +1,65 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+public class OrderGeneratorTest {
+    private static byte[] generate(OrderGenerator g) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        g.write(Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testSameSeedSameBytes() throws Exception {
+        byte[] a = generate(new OrderGenerator(7).rows(2000).customerSkew(1.2).malformedRatio(0.05));
+        byte[] b = generate(new OrderGenerator(7).rows(2000).customerSkew(1.2).malformedRatio(0.05));
+        byte[] c = generate(new OrderGenerator(8).rows(2000).customerSkew(1.2).malformedRatio(0.05));
+        assertArrayEquals(a, b);
+        assertFalse(Arrays.equals(a, c));
+    }
+
+    @Test
+    public void testRowsParseWithinSettings() throws Exception {
+        byte[] csv = generate(new OrderGenerator(1).rows(5000).categories(8).customers(50)
+                .prices(new BigDecimal("2.50"), new BigDecimal("9.99"), OrderGenerator.PriceDistribution.LOG_NORMAL)
+                .maxQuantity(3).malformedRatio(0.1)
+                .timestamps(Instant.parse("2024-02-29T00:00:00Z"), Instant.parse("2024-03-01T00:00:00Z")));
+        ByteBuffer buf = ByteBuffer.wrap(csv);
+        int nl = OrderCsvParser.indexOf(buf, OrderCsvParser.LF, 0, csv.length);
+        assertEquals(String.join(",", OrderProcessor.REQUIRED), new String(csv, 0, nl, StandardCharsets.UTF_8));
+
+        RejectCounts rejects = new RejectCounts();
+        OrderCsvParser parser = new OrderCsvParser(new ColumnPlan(OrderProcessor.REQUIRED, ColumnPlan.ALL_COLUMNS), rejects);
+        List<Order> orders = new ArrayList<>();
+        parser.parse(buf, nl + 1, csv.length, orders::add);
+        assertEquals(5000, orders.size() + rejects.total());
+        assertTrue(rejects.total() > 300 && rejects.total() < 700);
+        Set<String> categories = new HashSet<>();
+        for (Order o : orders) {
+            categories.add(o.getCategory());
+            assertTrue(o.getUnitPriceCents() >= 250 && o.getUnitPriceCents() <= 999);
+            assertTrue(o.getQuantity() >= 1 && o.getQuantity() <= 3);
+            assertTrue(o.getTimestamp(), o.getTimestamp().startsWith("2024-02-29T"));
+        }
+        assertEquals(8, categories.size());
+        assertTrue(categories.contains("Category-8"));
+    }
+
+    @Test
+    public void testTimestampBytesMatchInstant() {
+        SplittableRandom rnd = new SplittableRandom(3);
+        byte[] out = new byte[20];
+        for (int i = 0; i < 10_000; i++) {
+            long s = rnd.nextLong(Instant.parse("0000-01-01T00:00:00Z").getEpochSecond(),
+                    Instant.parse("9999-12-31T23:59:59Z").getEpochSecond());
+            assertEquals(20, Timestamps.format(s, out, 0));
+            assertEquals(Timestamps.format(s), new String(out, StandardCharsets.ISO_8859_1));
+        }
+    }
+}
@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * streamOrders as three overlapping stages: one reader thread fills byte chunks from the
+ * channel, {@code parsers} threads decode them into per-chunk partial summaries and formatted
+ * high-value rows, and the calling thread folds the chunks back in input order and writes
+ * the export. The output is byte for byte that of streamOrders.
+ *
+ * <pre>
+ *   reader --filled--> parser x N --parsed--> aggregate/write --free--> reader
+ * </pre>
+ *
+ * The stages are joined by RingBuffers and a fixed pool of {@code buffers} chunks. A chunk only
+ * returns to the reader once its rows are written, so a slow output disk stalls the parsers
+ * and then the reader instead of queueing decoded orders on the heap: memory stays at
+ * {@code buffers} chunks however large the input.
+ */
+final class OrderPipeline {
+    private static final Chunk END = new Chunk(0);
+
+    private final int parsers;
+    private final int buffers;
+    private final int chunkBytes;
+
+    OrderPipeline(int parsers, int buffers, int chunkBytes) {
+        if (parsers < 1) throw new IllegalArgumentException("parsers must be >= 1");
+        if (buffers < 2) throw new IllegalArgumentException("buffers must be >= 2");
+        if (chunkBytes < 1) throw new IllegalArgumentException("chunk size must be >= 1");
+        this.parsers = parsers;
+        this.buffers = buffers;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /** Two chunks per parser, so each has one to work on and one queued, of 1 MiB each. */
+    OrderPipeline(int parsers) {
+        this(parsers, 2 * parsers + 2, StreamedOrderFile.BUFFER);
+    }
+
+    /**
+     * Same contract as OrderProcessor.streamOrders: returns the number of valid orders and
+     * writes neither output when it is zero; a null csv skips the export.
+     */
+    long run(ReadableByteChannel in, BigDecimal threshold, Path summary, Path csv, RejectCounts rejects)
+            throws Exception {
+        return run(in, threshold, summary, csv, rejects, Gzip.DEFAULT_LEVEL);
+    }
+
+    /** run, compressing outputs named .gz at {@code gzipLevel}. */
+    long run(ReadableByteChannel in, BigDecimal threshold, Path summary, Path csv, RejectCounts rejects,
+             int gzipLevel) throws Exception {
+        Path tmp = csv == null ? null : csv.resolveSibling(csv.getFileName() + ".tmp");
+        SummaryAccumulator acc;
+        try (Writer out = tmp == null ? null : Gzip.newBufferedWriter(tmp, gzipLevel)) {
+            if (out != null) out.write(String.join(",", OrderProcessor.REQUIRED) + System.lineSeparator());
+            acc = new Run(in, Money.ceilCents(threshold), csv == null
+                    ? ColumnPlan.SUMMARY_COLUMNS : ColumnPlan.ALL_COLUMNS, out, rejects).call();
+        } catch (Exception e) {
+            if (tmp != null) Files.deleteIfExists(tmp);
+            throw e;
+        }
+        if (acc.count() == 0) {
+            if (tmp != null) Files.deleteIfExists(tmp);
+            return 0;
+        }
+        if (tmp != null) Files.move(tmp, csv, StandardCopyOption.REPLACE_EXISTING);
+        OrderProcessor.writeSummary(summary.toString(), acc.toSummary(), gzipLevel);
+        return acc.count();
+    }
+
+    /** One input's worth of stage threads and rings. */
+    private final class Run {
+        private final ReadableByteChannel in;
+        private final long thresholdCents;
+        private final int columns;
+        private final Writer out;
+        private final RejectCounts rejects;
+
+        private final RingBuffer<Chunk> free = new RingBuffer<>(buffers);
+        private final RingBuffer<Chunk> filled = new RingBuffer<>(buffers + parsers);
+        private final RingBuffer<Chunk> parsed = new RingBuffer<>(buffers + parsers);
+        private final RejectCounts[] parserRejects = new RejectCounts[parsers];
+        private final List<Thread> threads = new ArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        // set by the reader before it publishes the first chunk
+        private volatile String[] header;
+
+        Run(ReadableByteChannel in, long thresholdCents, int columns, Writer out, RejectCounts rejects) {
+            this.in = in;
+            this.thresholdCents = thresholdCents;
+            this.columns = columns;
+            this.out = out;
+            this.rejects = rejects;
+        }
+
+        SummaryAccumulator call() throws Exception {
+            for (int i = 0; i < buffers; i++) free.offer(new Chunk(chunkBytes));
+            threads.add(new Thread(() -> guard(this::read), "order-reader"));
+            for (int i = 0; i < parsers; i++) {
+                RejectCounts r = parserRejects[i] = new RejectCounts();
+                threads.add(new Thread(() -> guard(() -> parse(r)), "order-parser-" + i));
+            }
+            SummaryAccumulator acc = new SummaryAccumulator();
+            try {
+                for (Thread t : threads) {
+                    t.setDaemon(true);
+                    t.start();
+                }
+                aggregate(acc);
+                for (Thread t : threads) t.join();
+            } catch (Exception e) {
+                // once a stage has failed, whatever reached us is a consequence of that
+                if (failure.get() == null) throw e;
+            } finally {
+                cancel();
+            }
+            Throwable cause = failure.get();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause != null) throw (Error) cause;
+            for (RejectCounts r : parserRejects) rejects.merge(r);
+            return acc;
+        }
+
+        private void read() throws IOException, InterruptedException {
+            byte[] carry = new byte[0];
+            int carried = 0;
+            long seq = 0;
+            boolean eof = false;
+            while (!eof) {
+                Chunk c = free.take();
+                ByteBuffer buf = c.buf;
+                buf.clear();
+                if (carried >= buf.capacity()) buf = c.buf = ByteBuffer.allocate(2 * carried); // a line longer than a chunk
+                buf.put(carry, 0, carried);
+                while (buf.hasRemaining() && !eof) eof = in.read(buf) < 0;
+                int end = buf.position();
+                int from = 0;
+                if (header == null) {
+                    int nl = OrderCsvParser.indexOf(buf, OrderCsvParser.LF, 0, end);
+                    if (end == 0) throw new IllegalArgumentException("Empty file");
+                    if (nl < 0 && !eof) {
+                        carried = keep(carry = grow(carry, end), buf, 0, end);
+                        free.put(c);
+                        continue;
+                    }
+                    header = OrderCsvParser.parseHeader(buf, 0, nl < 0 ? end : nl);
+                    new ColumnPlan(header, columns); // fails here, before any parser starts, on a bad header
+                    from = nl < 0 ? end : nl + 1;
+                }
+                int limit = eof ? end : OrderCsvParser.lastIndexOf(buf, OrderCsvParser.LF, from, end) + 1;
+                if (limit <= from && !eof) { // no complete line yet: keep it all and read more
+                    carried = keep(carry = grow(carry, end - from), buf, from, end);
+                    free.put(c);
+                    continue;
+                }
+                carried = keep(carry = grow(carry, end - limit), buf, limit, end);
+                c.seq = seq++;
+                c.from = from;
+                c.to = limit;
+                filled.put(c);
+            }
+            for (int i = 0; i < parsers; i++) filled.put(END);
+        }
+
+        private void parse(RejectCounts r) throws InterruptedException {
+            OrderCsvParser parser = null;
+            while (true) {
+                Chunk c = filled.take();
+                if (c == END) break;
+                if (parser == null) parser = new OrderCsvParser(new ColumnPlan(header, columns), r);
+                SummaryAccumulator acc = c.acc = new SummaryAccumulator();
+                StringBuilder rows = c.rows;
+                rows.setLength(0);
+                parser.parse(c.buf, c.from, c.to, o -> {
+                    acc.accept(o);
+                    if (out != null && o.totalCents() >= thresholdCents) {
+                        rows.append(HighValueCsvWriter.row(o)).append(System.lineSeparator());
+                    }
+                });
+                parsed.put(c);
+            }
+            parsed.put(END);
+        }
+
+        /** Folds chunks in input order; a chunk's slot in {@code waiting} is its seq modulo the pool size. */
+        private void aggregate(SummaryAccumulator acc) throws IOException, InterruptedException {
+            Chunk[] waiting = new Chunk[buffers];
+            long next = 0;
+            for (int ended = 0; ended < parsers; ) {
+                Chunk c = parsed.take();
+                if (c == END) {
+                    ended++;
+                    continue;
+                }
+                waiting[(int) (c.seq % buffers)] = c;
+                int slot;
+                while ((c = waiting[slot = (int) (next % buffers)]) != null) {
+                    waiting[slot] = null;
+                    acc.merge(c.acc);
+                    if (out != null && c.rows.length() > 0) out.append(c.rows);
+                    c.acc = null;
+                    next++;
+                    free.put(c);
+                }
+            }
+        }
+
+        /**
+         * Runs a stage thread; its failure cancels the rings, which wakes every other stage and
+         * the caller without interrupting them (an interrupt would close the channels they use).
+         */
+        private void guard(Stage stage) {
+            try {
+                stage.run();
+            } catch (Throwable t) {
+                if (failure.compareAndSet(null, t)) cancel();
+            }
+        }
+
+        private void cancel() {
+            free.cancel();
+            filled.cancel();
+            parsed.cancel();
+        }
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private static final class Chunk {
+        ByteBuffer buf;
+        long seq;
+        int from, to;
+        SummaryAccumulator acc;
+        final StringBuilder rows = new StringBuilder();
+
+        Chunk(int bytes) {
+            buf = ByteBuffer.allocate(bytes);
+        }
+    }
+
+    private static byte[] grow(byte[] carry, int needed) {
+        return carry.length >= needed ? carry : Arrays.copyOf(carry, Math.max(needed, 2 * carry.length));
+    }
+
+    private static int keep(byte[] carry, ByteBuffer buf, int from, int to) {
+        buf.get(from, carry, 0, to - from);
+        return to - from;
+    }
+}
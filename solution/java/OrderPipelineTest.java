@@ -0,0 +1,93 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class OrderPipelineTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testSameOutputAsStreamOrders() throws Exception {
+        Path in = tmp.getRoot().toPath().resolve("orders.csv");
+        new OrderGenerator(5).rows(20_000).categories(12).malformedRatio(0.02).write(in);
+        Path root = tmp.getRoot().toPath();
+        BigDecimal threshold = new BigDecimal("500");
+        RejectCounts expectedRejects = new RejectCounts();
+        long expected = OrderProcessor.streamOrders(in.toString(), threshold, root.resolve("s1.json").toString(),
+                root.resolve("h1.csv").toString(), expectedRejects);
+
+        // chunks smaller than some rows force lines across chunk boundaries and chunk growth
+        for (int chunk : new int[]{40, 4096, 1 << 20}) {
+            RejectCounts rejects = new RejectCounts();
+            try (FileChannel ch = FileChannel.open(in)) {
+                assertEquals(expected, new OrderPipeline(3, 4, chunk).run(ch, threshold,
+                        root.resolve("s2.json"), root.resolve("h2.csv"), rejects));
+            }
+            assertEquals(expectedRejects.toString(), rejects.toString());
+            assertEquals(Files.readString(root.resolve("s1.json")), Files.readString(root.resolve("s2.json")));
+            assertEquals(Files.readString(root.resolve("h1.csv")), Files.readString(root.resolve("h2.csv")));
+        }
+    }
+
+    @Test
+    public void testStageFailureIsRethrown() throws Exception {
+        Path in = tmp.newFile("bad.csv").toPath();
+        Files.writeString(in, "order_id,category\nO1,Books\n");
+        try (FileChannel ch = FileChannel.open(in)) {
+            new OrderPipeline(2).run(ch, BigDecimal.ONE, tmp.getRoot().toPath().resolve("s.json"), null,
+                    new RejectCounts());
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Missing columns"));
+        }
+    }
+
+    @Test
+    public void testReadFailureMidStreamIsRethrownAsIs() throws Exception {
+        Path in = tmp.getRoot().toPath().resolve("orders.csv");
+        new OrderGenerator(8).rows(20_000).write(in);
+        Path root = tmp.getRoot().toPath();
+        try (FileChannel file = FileChannel.open(in)) {
+            // fails while parsers are busy and the caller is writing the export
+            ReadableByteChannel failing = new ReadableByteChannel() {
+                // a field rather than the resource itself, which only the try block should close
+                final FileChannel source = file;
+                int reads;
+
+                @Override
+                public int read(ByteBuffer dst) throws IOException {
+                    if (++reads == 20) throw new IOException("device went away");
+                    return source.read(dst);
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return source.isOpen();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    source.close();
+                }
+            };
+            try {
+                new OrderPipeline(3, 4, 4096).run(failing, BigDecimal.ONE, root.resolve("s.json"),
+                        root.resolve("h.csv"), new RejectCounts());
+                fail();
+            } catch (IOException e) {
+                assertEquals("device went away", e.getMessage());
+            }
+            assertTrue("the caller's channel stays open", file.isOpen());
+            assertFalse(Thread.currentThread().isInterrupted());
+            assertFalse(Files.exists(root.resolve("h.csv.tmp")));
+        }
+    }
+}
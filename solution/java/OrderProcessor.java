@@ -1,39 +1,238 @@
 import java.io.*;
 import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 public class OrderProcessor {
-    private static final String[] REQUIRED = new String[]{
+    static final String[] REQUIRED = new String[]{
             "order_id","customer_id","category","unit_price","quantity","timestamp"
     };
 
     public static void main(String[] args) {
         Map<String, String> argmap = parseArgs(args);
+        if (argmap.containsKey("--serve")) {
+            serve(argmap);
+            return;
+        }
+        if (argmap.containsKey("--batch")) {
+            System.exit(batch(argmap));
+        }
+        if (argmap.containsKey("--watch")) {
+            watch(argmap);
+            return;
+        }
         String input = argmap.get("--input");
         if (input == null) {
             System.err.println("Missing --input");
             System.exit(1);
         }
         BigDecimal threshold = new BigDecimal(argmap.getOrDefault("--threshold", "100.0"));
+        int parallelism = parsePositiveInt(argmap, "--parallelism", 1);
+        // --summary-only skips high_value_orders.csv and never decodes the columns only it needs
+        boolean summaryOnly = argmap.containsKey("--summary-only");
+        // --export-only is the reverse: just the high-value rows, filtered while parsing
+        boolean exportOnly = argmap.containsKey("--export-only");
+        String csvPath = summaryOnly && !exportOnly ? null : "high_value_orders.csv";
+        // --passthrough copies the selected input lines unchanged instead of re-formatting them
+        boolean passthrough = argmap.containsKey("--passthrough");
+        if (argmap.containsKey("--follow")) {
+            follow(input, threshold, csvPath, argmap);
+            return;
+        }
+        // --gzip-output [LEVEL] writes summary.json.gz and high_value_orders.csv.gz instead
+        String summaryPath = "summary.json";
+        int gzipLevel = Gzip.DEFAULT_LEVEL;
+        if (argmap.containsKey("--gzip-output")) {
+            String level = argmap.get("--gzip-output");
+            try {
+                gzipLevel = Gzip.checkLevel(level.equals("true") ? Gzip.DEFAULT_LEVEL : Integer.parseInt(level));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid --gzip-output: " + level);
+                System.exit(1);
+            }
+            summaryPath += ".gz";
+            if (csvPath != null) csvPath += ".gz";
+        }
+        String formattedCsv = passthrough ? null : csvPath;
+        RejectCounts rejects = new RejectCounts();
         try {
-            List<Order> orders = loadOrders(input);
-            if (orders.isEmpty()) {
-                System.err.println("No valid orders found.");
-                System.exit(2);
+            if (exportOnly) {
+                if (exportHighValue(input, threshold, csvPath, passthrough, rejects, gzipLevel) == 0) {
+                    System.err.println("No valid orders found.");
+                    System.exit(2);
+                }
+            } else if (passthrough && csvPath != null) {
+                // one scan feeds the summary and copies the selected lines, so piped input works too
+                if (streamPassthrough(input, threshold, summaryPath, csvPath, rejects, gzipLevel) == 0) {
+                    System.err.println("No valid orders found.");
+                    System.exit(2);
+                }
+            } else if (argmap.containsKey("--columnar") || argmap.containsKey("--cache")) {
+                // --cache keeps the parsed columns in INPUT.ordcol and maps them on later runs
+                OrderColumns batch = argmap.containsKey("--cache")
+                        ? OrderColumnFile.load(Paths.get(input), rejects)
+                        : OrderBatch.load(Paths.get(input),
+                                summaryOnly ? ColumnPlan.SUMMARY_COLUMNS : ColumnPlan.ALL_COLUMNS, rejects);
+                if (batch.size() == 0) {
+                    System.err.println("No valid orders found.");
+                    System.exit(2);
+                }
+                writeSummary(summaryPath, aggregate(batch), gzipLevel);
+                if (formattedCsv != null) {
+                    ZoneMaps.Scans scans = new ZoneMaps.Scans();
+                    writeHighValueCsv(formattedCsv, batch.filterHighValue(Money.ceilCents(threshold), scans), gzipLevel);
+                    System.err.println("High-value filter " + scans);
+                }
+            } else if (argmap.containsKey("--stream")) {
+                if (streamOrders(input, threshold, summaryPath, formattedCsv, rejects, gzipLevel) == 0) {
+                    System.err.println("No valid orders found.");
+                    System.exit(2);
+                }
+            } else if (argmap.containsKey("--pipeline")) {
+                // reading, --parallelism parser threads and writing overlap; same output as --stream
+                long valid;
+                Path in = Paths.get(input);
+                try (ReadableByteChannel ch = Gzip.inflateIfGzip(Files.newByteChannel(in))) {
+                    valid = new OrderPipeline(parallelism).run(ch, threshold, Paths.get(summaryPath),
+                            formattedCsv == null ? null : Paths.get(formattedCsv), rejects, gzipLevel);
+                }
+                if (valid == 0) {
+                    System.err.println("No valid orders found.");
+                    System.exit(2);
+                }
+            } else {
+                ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+                try {
+                    List<Order> orders = loadOrders(input, pool,
+                            summaryOnly ? ColumnPlan.SUMMARY_COLUMNS : ColumnPlan.ALL_COLUMNS, rejects);
+                    if (orders.isEmpty()) {
+                        System.err.println("No valid orders found.");
+                        System.exit(2);
+                    }
+                    Map<String, Object> summary = aggregate(orders, pool);
+                    writeSummary(summaryPath, summary, gzipLevel);
+                    if (formattedCsv != null) {
+                        List<Order> hv = filterHighValue(orders, threshold, pool);
+                        writeHighValueCsv(formattedCsv, hv, gzipLevel);
+                    }
+                } finally {
+                    if (pool != null) pool.shutdown();
+                }
+            }
+            if (rejects.total() > 0) {
+                System.err.println("Skipped " + rejects.total() + " malformed rows (" + rejects + ")");
             }
-            Map<String, Object> summary = aggregate(orders);
-            writeSummary("summary.json", summary);
-            List<Order> hv = filterHighValue(orders, threshold);
-            writeHighValueCsv("high_value_orders.csv", hv);
-            System.out.println("Wrote summary.json and high_value_orders.csv");
+            System.out.println(exportOnly ? "Wrote " + csvPath
+                    : csvPath == null ? "Wrote " + summaryPath : "Wrote " + summaryPath + " and " + csvPath);
         } catch (Exception e) {
-            System.err.println("Error: " + e.getMessage());
+            System.err.println("Error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+            System.exit(1);
+        }
+    }
+
+    /** --serve: answer jobs over HTTP until the process is stopped; binds to localhost unless --host says otherwise. */
+    static void serve(Map<String, String> argmap) {
+        String host = argmap.getOrDefault("--host", "127.0.0.1");
+        int port = parsePositiveInt(argmap, "--port", 8080);
+        try {
+            OrderServer server = OrderServer.start(new InetSocketAddress(host, port));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+            System.out.println("Serving on http://" + host + ":" + server.port());
+        } catch (IOException e) {
+            System.err.println("Error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
             System.exit(1);
         }
     }
 
+    /**
+     * --follow: tails the input (see OrderFollower), keeping summary.json and the high-value
+     * export current until the process is stopped. Progress is kept in --state, checkpointed
+     * every --flush-rows rows or --flush-ms milliseconds; the input is polled every --poll-ms.
+     */
+    static void follow(String input, BigDecimal threshold, String csvPath, Map<String, String> argmap) {
+        if (argmap.containsKey("--gzip-output")) {
+            System.err.println("--gzip-output cannot be combined with --follow");
+            System.exit(1);
+        }
+        int flushRows = parsePositiveInt(argmap, "--flush-rows", 10_000);
+        int flushMillis = parsePositiveInt(argmap, "--flush-ms", 1000);
+        int pollMillis = parsePositiveInt(argmap, "--poll-ms", 250);
+        Path state = Paths.get(argmap.getOrDefault("--state", "follow_state.json"));
+        try (OrderFollower follower = new OrderFollower(Paths.get(input), threshold, Paths.get("summary.json"),
+                csvPath == null ? null : Paths.get(csvPath), state).flushEvery(flushRows, flushMillis)) {
+            Thread main = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                follower.stop();
+                try {
+                    main.join(pollMillis + 5000L); // let the loop take its final checkpoint
+                } catch (InterruptedException ignored) {
+                    // exiting anyway
+                }
+            }));
+            System.out.println("Following " + input + " (state in " + state + ")");
+            follower.run(pollMillis);
+        } catch (Exception e) {
+            System.err.println("Error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * --watch DIR: ingests every order file dropped into DIR (see DirectoryWatcher) on
+     * --workers threads, writing per-file outputs and the rolling summary to --out,
+     * DIR/processed by default. A file counts as written once unchanged for --settle-ms.
+     */
+    static void watch(Map<String, String> argmap) {
+        Path dir = Paths.get(argmap.get("--watch"));
+        Path out = Paths.get(argmap.getOrDefault("--out", dir.resolve("processed").toString()));
+        BigDecimal threshold = new BigDecimal(argmap.getOrDefault("--threshold", "100.0"));
+        int workers = parsePositiveInt(argmap, "--workers", Runtime.getRuntime().availableProcessors());
+        int settleMillis = parseNonNegativeInt(argmap, "--settle-ms", 500); // 0 suits writers that rename into place
+        try (DirectoryWatcher watcher = new DirectoryWatcher(dir, out, threshold, workers).settle(settleMillis)) {
+            Thread main = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                watcher.stop();
+                try {
+                    main.join(30_000); // let running files finish
+                } catch (InterruptedException ignored) {
+                    // exiting anyway
+                }
+            }));
+            System.out.println("Watching " + dir + ", writing to " + out);
+            watcher.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * --batch JOBS: runs a JSON Lines file of jobs (see BatchRunner) on --workers threads,
+     * writing one result line per job to --results or stdout. Exits 1 if any job failed.
+     */
+    static int batch(Map<String, String> argmap) {
+        int workers = parsePositiveInt(argmap, "--workers", Runtime.getRuntime().availableProcessors());
+        String resultsPath = argmap.get("--results");
+        try (OutputStream results = resultsPath == null ? new FileOutputStream(FileDescriptor.out)
+                : Files.newOutputStream(Paths.get(resultsPath))) {
+            int failed = new BatchRunner(workers, results).run(Paths.get(argmap.get("--batch")));
+            if (failed > 0) System.err.println(failed + " job(s) failed");
+            return failed > 0 ? 1 : 0;
+        } catch (IOException e) {
+            System.err.println("Error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
     static Map<String, String> parseArgs(String[] args) {
         Map<String, String> m = new HashMap<>();
         for (int i = 0; i < args.length; i++) {
@@ -43,75 +242,190 @@ public class OrderProcessor {
                 m.put(key, val);
             }
         }
+        // a bare --parallelism means one parser per core
+        m.computeIfPresent("--parallelism", (k, v) ->
+                v.equals("true") ? String.valueOf(Runtime.getRuntime().availableProcessors()) : v);
         return m;
     }
 
+    static int parsePositiveInt(Map<String, String> argmap, String key, int def) {
+        return parseIntAtLeast(argmap, key, def, 1);
+    }
+
+    static int parseNonNegativeInt(Map<String, String> argmap, String key, int def) {
+        return parseIntAtLeast(argmap, key, def, 0);
+    }
+
+    private static int parseIntAtLeast(Map<String, String> argmap, String key, int def, int min) {
+        String v = argmap.get(key);
+        if (v == null) return def;
+        try {
+            int n = Integer.parseInt(v);
+            if (n >= min) return n;
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        System.err.println("Invalid " + key + ": " + v);
+        System.exit(1);
+        return def;
+    }
+
     static List<Order> loadOrders(String path) throws Exception {
-        List<Order> out = new ArrayList<>();
-        try (BufferedReader br = Files.newBufferedReader(Paths.get(path))) {
-            String header = br.readLine();
-            if (header == null) throw new IllegalArgumentException("Empty file");
-            String[] cols = header.split(",");
-            Set<String> set = new HashSet<>(Arrays.asList(cols));
-            for (String req : REQUIRED) if (!set.contains(req))
-                throw new IllegalArgumentException("Missing columns: " + req);
-            String line; int row = 1;
-            while ((line = br.readLine()) != null) {
-                row++;
-                String[] parts = line.split(",");
-                try {
-                    Map<String, String> r = mapRow(cols, parts);
-                    BigDecimal unitPrice = new BigDecimal(r.get("unit_price"));
-                    int quantity = Integer.parseInt(r.get("quantity"));
-                    out.add(new Order(
-                            r.get("order_id"), r.get("customer_id"), r.get("category"),
-                            unitPrice, quantity, r.get("timestamp")
-                    ));
-                } catch (Exception ex) {
-                    // skip malformed row
-                }
+        return loadOrders(path, 1);
+    }
+
+    static List<Order> loadOrders(String path, int parallelism) throws Exception {
+        return loadOrders(path, parallelism, ColumnPlan.ALL_COLUMNS);
+    }
+
+    static List<Order> loadOrders(String path, int parallelism, int columns) throws Exception {
+        if (parallelism <= 1) return loadOrders(path, null, columns, new RejectCounts());
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return loadOrders(path, pool, columns, new RejectCounts());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Skipped rows are counted in {@code rejects}, by reason. */
+    static List<Order> loadOrders(String path, ForkJoinPool pool, int columns, RejectCounts rejects) throws Exception {
+        return MappedOrderFile.load(Paths.get(path), pool, columns, rejects);
+    }
+
+    /**
+     * Single pass without materializing the orders: each row is folded into the summary
+     * and, when high-value, written out before the next row is parsed. Returns the number
+     * of valid orders; when that is zero neither output is written. A null csvPath skips
+     * the high-value export. Skipped rows are counted in {@code rejects}.
+     */
+    static long streamOrders(String input, BigDecimal threshold, String summaryPath, String csvPath,
+                             RejectCounts rejects) throws Exception {
+        return streamOrders(input, threshold, summaryPath, csvPath, rejects, Gzip.DEFAULT_LEVEL);
+    }
+
+    /** streamOrders, compressing outputs named .gz at {@code gzipLevel}. */
+    static long streamOrders(String input, BigDecimal threshold, String summaryPath, String csvPath,
+                             RejectCounts rejects, int gzipLevel) throws Exception {
+        return streamSummary(input, threshold, summaryPath, csvPath, rejects, gzipLevel).count();
+    }
+
+    /** streamOrders, returning the accumulated summary so callers can merge it into others. */
+    static SummaryAccumulator streamSummary(String input, BigDecimal threshold, String summaryPath, String csvPath,
+                                            RejectCounts rejects) throws Exception {
+        return streamSummary(input, threshold, summaryPath, csvPath, rejects, Gzip.DEFAULT_LEVEL);
+    }
+
+    static SummaryAccumulator streamSummary(String input, BigDecimal threshold, String summaryPath, String csvPath,
+                                            RejectCounts rejects, int gzipLevel) throws Exception {
+        SummaryAccumulator acc = new SummaryAccumulator();
+        long thresholdCents = Money.ceilCents(threshold);
+        if (csvPath == null) {
+            MappedOrderFile.forEach(Paths.get(input), ColumnPlan.SUMMARY_COLUMNS, acc, rejects);
+        } else {
+            Path csv = Paths.get(csvPath);
+            Path tmp = csv.resolveSibling(csv.getFileName() + ".tmp");
+            try (HighValueCsvWriter hv = new HighValueCsvWriter(tmp, gzipLevel)) {
+                MappedOrderFile.forEach(Paths.get(input), ColumnPlan.ALL_COLUMNS, o -> {
+                    acc.accept(o);
+                    if (o.totalCents() >= thresholdCents) hv.accept(o);
+                }, rejects);
+            } catch (Exception e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+            if (acc.count() == 0) {
+                Files.deleteIfExists(tmp);
+                return acc;
             }
+            Files.move(tmp, csv, StandardCopyOption.REPLACE_EXISTING);
         }
-        return out;
+        if (acc.count() > 0) writeSummary(summaryPath, acc.toSummary(), gzipLevel);
+        return acc;
     }
 
-    static Map<String, String> mapRow(String[] cols, String[] parts) {
-        Map<String, String> r = new HashMap<>();
-        for (int i = 0; i < Math.min(cols.length, parts.length); i++) {
-            r.put(cols[i], parts[i]);
+    /**
+     * The summary plus the passthrough export from a single scan: every valid row feeds the
+     * summary, and the header and the lines of rows at or above the threshold are copied to
+     * {@code csvPath} byte for byte. Same contract as streamOrders.
+     */
+    static long streamPassthrough(String input, BigDecimal threshold, String summaryPath, String csvPath,
+                                  RejectCounts rejects) throws Exception {
+        return streamPassthrough(input, threshold, summaryPath, csvPath, rejects, Gzip.DEFAULT_LEVEL);
+    }
+
+    static long streamPassthrough(String input, BigDecimal threshold, String summaryPath, String csvPath,
+                                  RejectCounts rejects, int gzipLevel) throws Exception {
+        SummaryAccumulator acc = new SummaryAccumulator();
+        Path csv = Paths.get(csvPath);
+        Path tmp = csv.resolveSibling(csv.getFileName() + ".tmp");
+        try (RawCsvWriter out = new RawCsvWriter(tmp, gzipLevel)) {
+            MappedOrderFile.forEachWithLines(Paths.get(input), ColumnPlan.SUMMARY_COLUMNS, acc,
+                    Money.ceilCents(threshold), out, rejects);
+        } catch (Exception e) {
+            Files.deleteIfExists(tmp);
+            throw e;
         }
-        return r;
+        if (acc.count() == 0) {
+            Files.deleteIfExists(tmp);
+            return 0;
+        }
+        Files.move(tmp, csv, StandardCopyOption.REPLACE_EXISTING);
+        writeSummary(summaryPath, acc.toSummary(), gzipLevel);
+        return acc.count();
+    }
+
+    /**
+     * Writes only the high-value export. The threshold is applied inside the parser, so rows
+     * below it are dropped before an Order is built; with passthrough the input's header and
+     * matching lines are copied byte for byte instead. Returns the number of valid orders;
+     * when that is zero the export is not written.
+     */
+    static long exportHighValue(String input, BigDecimal threshold, String csvPath, boolean passthrough,
+                                RejectCounts rejects) throws Exception {
+        return exportHighValue(input, threshold, csvPath, passthrough, rejects, Gzip.DEFAULT_LEVEL);
+    }
+
+    static long exportHighValue(String input, BigDecimal threshold, String csvPath, boolean passthrough,
+                                RejectCounts rejects, int gzipLevel) throws Exception {
+        Path csv = Paths.get(csvPath);
+        Path tmp = csv.resolveSibling(csv.getFileName() + ".tmp");
+        long thresholdCents = Money.ceilCents(threshold);
+        long valid;
+        try {
+            if (passthrough) {
+                try (RawCsvWriter out = new RawCsvWriter(tmp, gzipLevel)) {
+                    valid = MappedOrderFile.forEachLine(Paths.get(input), thresholdCents, out, rejects);
+                }
+            } else {
+                try (HighValueCsvWriter out = new HighValueCsvWriter(tmp, gzipLevel)) {
+                    valid = MappedOrderFile.forEachAtLeast(Paths.get(input), thresholdCents, out, rejects);
+                }
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        if (valid == 0) {
+            Files.deleteIfExists(tmp);
+            return 0;
+        }
+        Files.move(tmp, csv, StandardCopyOption.REPLACE_EXISTING);
+        return valid;
     }
 
     static Map<String, Object> aggregate(List<Order> orders) {
-        double totalRevenue = orders.stream()
-                .map(o -> o.total())
-                .mapToDouble(bd -> bd.doubleValue())
-                .sum();
-        totalRevenue = Math.round(totalRevenue * 100.0) / 100.0;
-        double aov = orders.isEmpty() ? 0.0 : Math.round((totalRevenue / orders.size()) * 100.0) / 100.0;
-
-        Map<String, Long> perCat = orders.stream()
-                .collect(Collectors.groupingBy(Order::getCategory, Collectors.counting()));
-
-        Map<String, Double> revenueByCat = new HashMap<>();
-        for (Order o : orders) {
-            revenueByCat.merge(o.getCategory(), o.total().doubleValue(), Double::sum);
-        }
-        String topCat = null;
-        if (!revenueByCat.isEmpty()) {
-            double max = revenueByCat.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
-            List<String> candidates = revenueByCat.entrySet().stream()
-                    .filter(e -> Math.abs(e.getValue() - max) < 1e-9)
-                    .map(Map.Entry::getKey).sorted().collect(Collectors.toList());
-            topCat = candidates.get(0);
-        }
-        Map<String, Object> summary = new LinkedHashMap<>();
-        summary.put("total_revenue", round2(totalRevenue));
-        summary.put("average_order_value", round2(aov));
-        summary.put("orders_per_category", perCat);
-        summary.put("top_category_by_revenue", topCat);
-        return summary;
+        return new SummaryAccumulator().addAll(orders).toSummary();
+    }
+
+    /** Fork/join variant with the same result; a null pool runs sequentially. */
+    static Map<String, Object> aggregate(List<Order> orders, ForkJoinPool pool) {
+        if (pool == null) return aggregate(orders);
+        return ParallelOrders.aggregate(orders, pool).toSummary();
+    }
+
+    static Map<String, Object> aggregate(OrderColumns batch) {
+        return batch.summarize().toSummary();
     }
 
     static double round2(double d) {
@@ -119,57 +433,39 @@ public class OrderProcessor {
     }
 
     static List<Order> filterHighValue(List<Order> orders, BigDecimal threshold) {
+        long thresholdCents = Money.ceilCents(threshold);
         return orders.stream()
-                .filter(o -> o.total().compareTo(threshold) >= 0)
+                .filter(o -> o.totalCents() >= thresholdCents)
                 .collect(Collectors.toList());
     }
 
+    static List<Order> filterHighValue(List<Order> orders, BigDecimal threshold, ForkJoinPool pool) {
+        if (pool == null) return filterHighValue(orders, threshold);
+        return ParallelOrders.filterHighValue(orders, Money.ceilCents(threshold), pool);
+    }
+
+    static List<Order> filterHighValue(OrderColumns batch, BigDecimal threshold) {
+        return batch.filterHighValue(Money.ceilCents(threshold));
+    }
+
     static void writeSummary(String path, Map<String, Object> summary) throws IOException {
-        try (Writer w = new BufferedWriter(new FileWriter(path))) {
-            w.write("{\n");
-            int i = 0; int n = summary.size();
-            for (Map.Entry<String, Object> e : summary.entrySet()) {
-                w.write(String.format("  \"%s\": %s%s\n", e.getKey(), jsonValue(e.getValue()), (++i<n)?",":""));
-            }
-            w.write("}\n");
-        }
+        writeSummary(path, summary, Gzip.DEFAULT_LEVEL);
     }
 
-    static String jsonValue(Object v) {
-        if (v == null) return "null";
-        if (v instanceof String) return \"\" + v.toString().replace("\"", "\\\"") + \"\";
-        if (v instanceof Number) return v.toString();
-        if (v instanceof Map) {
-            @SuppressWarnings("unchecked") Map<String, Object> m = (Map<String, Object>) v;
-            StringBuilder sb = new StringBuilder("{");
-            int i=0; int n=m.size();
-            for (Map.Entry<String,Object> e : m.entrySet()) {
-                sb.append("\""+e.getKey()+"\": "+jsonValue(e.getValue()));
-                if (++i<n) sb.append(", ");
-            }
-            sb.append("}");
-            return sb.toString();
-        }
-        if (v instanceof Iterable) {
-            StringBuilder sb = new StringBuilder("[");
-            Iterator<?> it = ((Iterable<?>) v).iterator();
-            while (it.hasNext()) { sb.append(jsonValue(it.next())); if (it.hasNext()) sb.append(", "); }
-            sb.append("]");
-            return sb.toString();
+    /** Writes {@code summary} to {@code path}, compressed at {@code gzipLevel} when it is named .gz. */
+    static void writeSummary(String path, Map<String, Object> summary, int gzipLevel) throws IOException {
+        try (JsonWriter w = new JsonWriter(Gzip.newOutputStream(Paths.get(path), gzipLevel))) {
+            w.value(summary);
         }
-        return \"\" + v.toString() + \"\";
     }
 
     static void writeHighValueCsv(String path, List<Order> rows) throws IOException {
-        try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(path))) {
-            bw.write(String.join(",", REQUIRED));
-            bw.newLine();
-            for (Order o : rows) {
-                bw.write(String.format("%s,%s,%s,%.2f,%d,%s",
-                        o.getOrderId(), o.getCustomerId(), o.getCategory(),
-                        o.getUnitPrice(), o.getQuantity(), o.getTimestamp()));
-                bw.newLine();
-            }
+        writeHighValueCsv(path, rows, Gzip.DEFAULT_LEVEL);
+    }
+
+    static void writeHighValueCsv(String path, List<Order> rows, int gzipLevel) throws IOException {
+        try (HighValueCsvWriter w = new HighValueCsvWriter(Paths.get(path), gzipLevel)) {
+            for (Order o : rows) w.accept(o);
         }
     }
 }
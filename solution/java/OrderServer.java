@@ -0,0 +1,156 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The processing stages behind HTTP, so one warmed-up JVM serves many small jobs. Every
+ * request runs on its own virtual thread.
+ *
+ * <pre>
+ *   POST /summary                      CSV body      -> summary.json content
+ *   POST /high-value?threshold=100     CSV body      -> high_value_orders.csv content
+ *   POST /summary?path=/data/o.csv     (no body)     -> reads a local file instead
+ *   GET  /health                                     -> ok
+ * </pre>
+ *
+ * Responses are buffered so a job with no valid orders can still answer 422; large files are
+ * better served by the command line. Skipped rows are reported in X-Rejected-Rows.
+ */
+final class OrderServer {
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private OrderServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    static OrderServer start(InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/summary", ex -> handle(ex, false));
+        server.createContext("/high-value", ex -> handle(ex, true));
+        server.createContext("/health", ex -> {
+            try (ex) {
+                send(ex, 200, "text/plain", "ok\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+        return new OrderServer(server, executor);
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Stops accepting requests and waits up to {@code delaySeconds} for running ones. */
+    void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    private static void handle(HttpExchange ex, boolean highValue) throws IOException {
+        try (ex) {
+            if (!"POST".equals(ex.getRequestMethod())) {
+                send(ex, 405, "application/json", error("Use POST"));
+                return;
+            }
+            try {
+                Map<String, String> query = query(ex.getRequestURI());
+                BigDecimal threshold = threshold(query.getOrDefault("threshold", "100.0"));
+                String path = query.get("path");
+                RejectCounts rejects = new RejectCounts();
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                long valid;
+                if (highValue) {
+                    long cents = Money.ceilCents(threshold);
+                    try (HighValueCsvWriter w = new HighValueCsvWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8))) {
+                        valid = path != null
+                                ? MappedOrderFile.forEachAtLeast(Paths.get(path), cents, w, rejects)
+                                : StreamedOrderFile.forEach(Channels.newChannel(ex.getRequestBody()),
+                                        ColumnPlan.ALL_COLUMNS, cents, w, rejects);
+                    }
+                } else {
+                    SummaryAccumulator acc = new SummaryAccumulator();
+                    if (path != null) {
+                        MappedOrderFile.forEach(Paths.get(path), ColumnPlan.SUMMARY_COLUMNS, acc, rejects);
+                    } else {
+                        StreamedOrderFile.forEach(Channels.newChannel(ex.getRequestBody()),
+                                ColumnPlan.SUMMARY_COLUMNS, Long.MIN_VALUE, acc, rejects);
+                    }
+                    valid = acc.count();
+                    if (valid > 0) {
+                        try (JsonWriter w = new JsonWriter(body)) {
+                            w.value(acc.toSummary());
+                        }
+                    }
+                }
+                if (valid == 0) {
+                    send(ex, 422, "application/json", error("No valid orders found."));
+                    return;
+                }
+                ex.getResponseHeaders().set("X-Rejected-Rows", Long.toString(rejects.total()));
+                send(ex, 200, highValue ? "text/csv" : "application/json", body.toByteArray());
+            } catch (IllegalArgumentException | NoSuchFileException e) {
+                send(ex, 400, "application/json", error(e instanceof NoSuchFileException
+                        ? "No such file: " + e.getMessage() : e.getMessage()));
+            } catch (IOException | RuntimeException e) {
+                send(ex, 500, "application/json", error(e.getMessage() != null ? e.getMessage() : e.toString()));
+            }
+        }
+    }
+
+    private static BigDecimal threshold(String s) {
+        try {
+            return new BigDecimal(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid threshold: " + s);
+        }
+    }
+
+    static Map<String, String> query(URI uri) {
+        Map<String, String> m = new HashMap<>();
+        String q = uri.getRawQuery();
+        if (q == null || q.isEmpty()) return m;
+        for (String pair : q.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "true" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            m.put(key, value);
+        }
+        return m;
+    }
+
+    private static byte[] error(String message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter w = new JsonWriter(out)) {
+            w.beginObject().name("error").value(message).endObject();
+        }
+        return out.toByteArray();
+    }
+
+    private static void send(HttpExchange ex, int status, String contentType, byte[] body) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        ex.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
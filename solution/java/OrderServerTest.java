@@ -0,0 +1,39 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class OrderServerTest {
+    private static final String CSV = "order_id,customer_id,category,unit_price,quantity,timestamp\n"
+            + "O1,C1,Books,12.50,2,t1\nO2,C2,Toys,150.00,1,t2\nO3,C3,Toys,oops,1,t3\n";
+
+    @Test
+    public void testSummaryAndHighValueOverHttp() throws Exception {
+        OrderServer server = OrderServer.start(new InetSocketAddress("127.0.0.1", 0));
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://127.0.0.1:" + server.port();
+            HttpResponse<String> summary = client.send(HttpRequest.newBuilder(URI.create(base + "/summary"))
+                    .POST(HttpRequest.BodyPublishers.ofString(CSV)).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, summary.statusCode());
+            assertTrue(summary.body(), summary.body().contains("\"total_revenue\": 175.0"));
+            assertEquals("1", summary.headers().firstValue("X-Rejected-Rows").orElse(null));
+
+            HttpResponse<String> hv = client.send(HttpRequest.newBuilder(URI.create(base + "/high-value?threshold=100"))
+                    .POST(HttpRequest.BodyPublishers.ofString(CSV)).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, hv.statusCode());
+            assertEquals(2, hv.body().split("\n").length);
+            assertTrue(hv.body().contains("O2,C2,Toys,150.00,1,t2"));
+
+            HttpResponse<String> bad = client.send(HttpRequest.newBuilder(URI.create(base + "/high-value?threshold=abc"))
+                    .POST(HttpRequest.BodyPublishers.ofString(CSV)).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, bad.statusCode());
+            assertTrue(bad.body().contains("Invalid threshold: abc"));
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -1,9 +1,19 @@
+import org.junit.Assume;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.junit.Assert.*;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 public class OrderTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     @Test
     public void testOrderTotal() {
         Order o = new Order("O1","C1","Books", new BigDecimal("12.50"), 4, "t");
@@ -18,11 +28,155 @@ public class OrderTest {
             new Order("O3","C3","A", new BigDecimal("60.0"),2,"t")
         );
         Map<String,Object> summary = OrderProcessor.aggregate(orders);
-        assertEquals(150.00, (Double) summary.get("total_revenue"), 0.001);
+        assertEquals(230.00, (Double) summary.get("total_revenue"), 0.001);
         @SuppressWarnings("unchecked") Map<String, Long> perCat = (Map<String, Long>) summary.get("orders_per_category");
         assertEquals(Long.valueOf(2L), perCat.get("A"));
         List<Order> hv = OrderProcessor.filterHighValue(orders, new BigDecimal("100.0"));
         assertEquals(1, hv.size());
         assertEquals("O3", hv.get(0).getOrderId());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSummaryAccumulatorMatchesAggregate() {
+        List<Order> orders = Arrays.asList(
+            new Order("O1","C1","A", new BigDecimal("50.0"),1,"t"),
+            new Order("O2","C2","B", new BigDecimal("20.0"),3,"t"),
+            new Order("O3","C3","A", new BigDecimal("60.0"),2,"t"),
+            new Order("O4","C4","B", new BigDecimal("110.0"),1,"t")
+        );
+        SummaryAccumulator acc = new SummaryAccumulator();
+        orders.forEach(acc);
+        assertEquals(4, acc.count());
+        assertEquals(OrderProcessor.aggregate(orders), acc.toSummary());
+        assertEquals("A", acc.toSummary().get("top_category_by_revenue"));
+    }
+
+    @Test
+    public void testMergedPartialsMatchWholeInput() {
+        List<Order> orders = Arrays.asList(
+            new Order("O1","C1","Toys", new BigDecimal("50.0"),1,"t"),
+            new Order("O2","C2","Books", new BigDecimal("20.0"),3,"t"),
+            new Order("O3","C3","Games", new BigDecimal("60.0"),2,"t"),
+            new Order("O4","C4","Books", new BigDecimal("60.0"),1,"t"),
+            new Order("O5","C5","Toys", new BigDecimal("70.0"),1,"t")
+        );
+        SummaryAccumulator left = new SummaryAccumulator().addAll(orders.subList(0, 2));
+        SummaryAccumulator right = new SummaryAccumulator().addAll(orders.subList(2, 5));
+        Map<String, Object> merged = left.merge(right).toSummary();
+        assertEquals(OrderProcessor.aggregate(orders).toString(), merged.toString());
+        assertEquals(BigInteger.valueOf(12000), left.categoryRevenueCents("Books"));
+        assertEquals("Books", left.topCategory());
+    }
+
+    @Test
+    public void testRevenueBeyondLongRangeIsSummedExactly() {
+        BigDecimal huge = new BigDecimal("9999999999999999.99");
+        List<Order> orders = Arrays.asList(
+            new Order("O1","C1","Books", huge,9,"t"),
+            new Order("O2","C2","Books", huge,9,"t"),
+            new Order("O3","C3","Toys", new BigDecimal("5.00"),1,"t")
+        );
+        BigInteger books = new BigInteger("17999999999999999982");
+        SummaryAccumulator acc = new SummaryAccumulator().addAll(orders);
+        assertEquals(books, acc.categoryRevenueCents("Books"));
+        assertEquals(books.add(BigInteger.valueOf(500)), acc.revenueCents());
+        assertEquals("Books", acc.topCategory());
+        assertEquals(1.8e17, (Double) acc.toSummary().get("total_revenue"), 1e3);
+
+        SummaryAccumulator merged = new SummaryAccumulator().addAll(orders.subList(0, 1))
+                .merge(new SummaryAccumulator().addAll(orders.subList(1, 3)));
+        assertEquals(acc.toSummary(), merged.toSummary());
+        assertEquals(acc.toSummary(), OrderBatch.of(orders).summarize().toSummary());
+        assertEquals(acc.toCategories().toString(),
+                SummaryAccumulator.fromCategories(Arrays.asList(Map.of("name", "Books",
+                        "orders", BigDecimal.valueOf(2), "revenue_cents", new BigDecimal(books)),
+                        Map.of("name", "Toys", "orders", BigDecimal.ONE, "revenue_cents", BigDecimal.valueOf(500))))
+                        .toCategories().toString());
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        String[] cats = {"Books", "Toys", "Games", "Home & Garden"};
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 3 * ParallelOrders.LEAF + 17; i++) {
+            orders.add(new Order("O" + i, "C" + i % 97, cats[i * 7 % cats.length],
+                    BigDecimal.valueOf(i * 31 % 20000, 2), 1 + i % 5, "t"));
+        }
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        try {
+            assertEquals(OrderProcessor.aggregate(orders).toString(), OrderProcessor.aggregate(orders, pool).toString());
+            BigDecimal threshold = new BigDecimal("100.0");
+            assertEquals(OrderProcessor.filterHighValue(orders, threshold),
+                    OrderProcessor.filterHighValue(orders, threshold, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelFailureKeepsItsMessage() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 2 * ParallelOrders.LEAF; i++) orders.add(new Order("O" + i, "C1", "A", 100, 1, "t"));
+        // a total that cannot be formed in long cents
+        orders.set(3, new Order("O3", "C1", "A", Long.MAX_VALUE / 2, 3, "t"));
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(2);
+        try {
+            OrderProcessor.aggregate(orders, pool);
+            fail("expected the overflow to surface");
+        } catch (ArithmeticException e) {
+            assertEquals("long overflow", e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPassthroughKeepsLineTerminators() throws Exception {
+        Path root = tmp.getRoot().toPath();
+        Path csv = root.resolve("orders.csv");
+        String header = "order_id,customer_id,category,unit_price,quantity,timestamp\r\n";
+        Files.writeString(csv, header + "O1,C1,Books,150.00,1,t1\r\nO2,C2,Toys,5.00,1,t2\r\n"
+                + "O3,C3,Toys,200.00,1,t3\nO4,C4,Toys,300.00,1,t4");
+        String expected = header + "O1,C1,Books,150.00,1,t1\r\nO3,C3,Toys,200.00,1,t3\nO4,C4,Toys,300.00,1,t4";
+        Path out = root.resolve("hv.csv");
+        assertEquals(4, OrderProcessor.exportHighValue(csv.toString(), new BigDecimal("100"), out.toString(), true,
+                new RejectCounts()));
+        assertEquals(expected, Files.readString(out));
+        assertEquals(4, OrderProcessor.streamPassthrough(csv.toString(), new BigDecimal("100"),
+                root.resolve("summary.json").toString(), out.toString(), new RejectCounts()));
+        assertEquals(expected, Files.readString(out));
+    }
+
+    @Test
+    public void testPassthroughReadsPipedInputOnce() throws Exception {
+        Path root = tmp.getRoot().toPath();
+        Path csv = root.resolve("orders.csv");
+        new OrderGenerator(3).rows(20_000).malformedRatio(0.01).write(csv);
+        BigDecimal threshold = new BigDecimal("400");
+        RejectCounts expectedRejects = new RejectCounts();
+        OrderProcessor.exportHighValue(csv.toString(), threshold, root.resolve("expected.csv").toString(), true,
+                expectedRejects);
+        OrderProcessor.streamOrders(csv.toString(), threshold, root.resolve("expected.json").toString(), null,
+                new RejectCounts());
+
+        // a fifo is not a regular file and can be read only once, like stdin
+        Path fifo = root.resolve("orders.fifo");
+        Assume.assumeTrue(new ProcessBuilder("mkfifo", fifo.toString()).start().waitFor() == 0);
+        Thread feeder = new Thread(() -> {
+            try (OutputStream out = Files.newOutputStream(fifo)) {
+                Files.copy(csv, out);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        feeder.start();
+        RejectCounts rejects = new RejectCounts();
+        long valid = OrderProcessor.streamPassthrough(fifo.toString(), threshold, root.resolve("summary.json").toString(),
+                root.resolve("high.csv").toString(), rejects);
+        feeder.join();
+        assertTrue(valid > 0);
+        assertEquals(expectedRejects.toString(), rejects.toString());
+        assertEquals(Files.readString(root.resolve("expected.json")), Files.readString(root.resolve("summary.json")));
+        assertArrayEquals(Files.readAllBytes(root.resolve("expected.csv")), Files.readAllBytes(root.resolve("high.csv")));
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join variants of aggregate and filterHighValue. The list is cut into fixed leaves of
+ * LEAF orders; every leaf works on its own state and results are combined in leaf order,
+ * so the output is identical to the sequential methods.
+ */
+final class ParallelOrders {
+    static final int LEAF = 1 << 13;
+
+    private ParallelOrders() {}
+
+    static SummaryAccumulator aggregate(List<Order> orders, ForkJoinPool pool) {
+        List<Order> list = randomAccess(orders);
+        return invoke(pool, new AggregateTask(list, 0, leaves(list)));
+    }
+
+    static List<Order> filterHighValue(List<Order> orders, long thresholdCents, ForkJoinPool pool) {
+        List<Order> list = randomAccess(orders);
+        @SuppressWarnings({"unchecked", "rawtypes"}) List<Order>[] parts = new List[leaves(list)];
+        invoke(pool, new FilterTask(list, thresholdCents, parts, 0, parts.length));
+        int size = 0;
+        for (List<Order> p : parts) size += p.size();
+        List<Order> out = new ArrayList<>(size);
+        for (List<Order> p : parts) out.addAll(p);
+        return out;
+    }
+
+    /**
+     * pool.invoke, but rethrowing a worker's exception itself. Every join on another thread
+     * throws a copy made through the no-arg constructor when there is no (Throwable) one, which
+     * drops the message; each copy's cause is the exception it copied.
+     */
+    private static <T> T invoke(ForkJoinPool pool, ForkJoinTask<T> task) {
+        try {
+            return pool.invoke(task);
+        } catch (RuntimeException | Error e) {
+            Throwable t = e;
+            while (t.getCause() != null && t.getCause().getClass() == t.getClass()) t = t.getCause();
+            if (t instanceof Error) throw (Error) t;
+            throw (RuntimeException) t;
+        }
+    }
+
+    private static List<Order> randomAccess(List<Order> orders) {
+        return orders instanceof RandomAccess ? orders : new ArrayList<>(orders);
+    }
+
+    private static int leaves(List<Order> orders) {
+        return Math.max(1, (orders.size() + LEAF - 1) / LEAF);
+    }
+
+    @SuppressWarnings("serial") // never serialized
+    private static final class AggregateTask extends RecursiveTask<SummaryAccumulator> {
+        private final List<Order> orders;
+        private final int from, to; // leaf indexes
+
+        AggregateTask(List<Order> orders, int from, int to) {
+            this.orders = orders;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SummaryAccumulator compute() {
+            if (to - from == 1) {
+                SummaryAccumulator acc = new SummaryAccumulator();
+                int end = Math.min(orders.size(), to * LEAF);
+                for (int i = from * LEAF; i < end; i++) acc.accept(orders.get(i));
+                return acc;
+            }
+            int mid = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(orders, from, mid);
+            left.fork();
+            SummaryAccumulator right = new AggregateTask(orders, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class FilterTask extends RecursiveAction {
+        private final List<Order> orders;
+        private final long thresholdCents;
+        private final List<Order>[] parts;
+        private final int from, to; // leaf indexes
+
+        FilterTask(List<Order> orders, long thresholdCents, List<Order>[] parts, int from, int to) {
+            this.orders = orders;
+            this.thresholdCents = thresholdCents;
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                List<Order> out = new ArrayList<>();
+                int end = Math.min(orders.size(), to * LEAF);
+                for (int i = from * LEAF; i < end; i++) {
+                    Order o = orders.get(i);
+                    if (o.totalCents() >= thresholdCents) out.add(o);
+                }
+                parts[from] = out;
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new FilterTask(orders, thresholdCents, parts, from, mid),
+                    new FilterTask(orders, thresholdCents, parts, mid, to));
+        }
+    }
+}
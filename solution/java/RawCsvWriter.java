@@ -0,0 +1,63 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes input lines to a file byte for byte, bulk-copied from the input buffer into one
+ * reusable direct buffer; nothing is formatted or charset-encoded, and each line keeps the
+ * terminator it had in the input, LF or CRLF.
+ */
+final class RawCsvWriter implements OrderCsvParser.LineSink, Closeable {
+    static final int BUFFER = 1 << 16;
+
+    private final WritableByteChannel out;
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER);
+
+    RawCsvWriter(Path path, int gzipLevel) throws IOException {
+        out = Gzip.isGzipName(path) ? Channels.newChannel(Gzip.newOutputStream(path, gzipLevel))
+                : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public void accept(ByteBuffer src, int from, int to) {
+        int len = to - from;
+        try {
+            if (len > buf.remaining()) flush();
+            if (len > buf.capacity()) {
+                // too long to stage; write it straight from the input
+                write(src.slice(from, len));
+            } else {
+                buf.put(buf.position(), src, from, len);
+                buf.position(buf.position() + len);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        buf.flip();
+        write(buf);
+        buf.clear();
+    }
+
+    private void write(ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) out.write(b);
+    }
+}
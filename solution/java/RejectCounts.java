@@ -0,0 +1,72 @@
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Per-reason counts of the input rows the parser skipped. */
+final class RejectCounts {
+    enum Reason {
+        SHORT_ROW("short row"),
+        BAD_PRICE("bad price"),
+        BAD_QUANTITY("bad quantity"),
+        TOTAL_OUT_OF_RANGE("total out of range");
+
+        final String label;
+
+        Reason(String label) {
+            this.label = label;
+        }
+    }
+
+    private final long[] counts = new long[Reason.values().length];
+
+    void add(Reason reason) {
+        counts[reason.ordinal()]++;
+    }
+
+    void add(Reason reason, long n) {
+        counts[reason.ordinal()] += n;
+    }
+
+    long get(Reason reason) {
+        return counts[reason.ordinal()];
+    }
+
+    long total() {
+        long t = 0;
+        for (long c : counts) t += c;
+        return t;
+    }
+
+    RejectCounts merge(RejectCounts other) {
+        for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        return this;
+    }
+
+    /** Count per reason name, for persisting between runs; {@link #fromMap} reads it back. */
+    Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (Reason r : Reason.values()) m.put(r.name(), counts[r.ordinal()]);
+        return m;
+    }
+
+    static RejectCounts fromMap(Map<?, ?> m) {
+        RejectCounts rc = new RejectCounts();
+        for (Reason r : Reason.values()) {
+            Object n = m.get(r.name());
+            if (n != null) rc.add(r, ((BigDecimal) n).longValueExact());
+        }
+        return rc;
+    }
+
+    /** e.g. "short row: 1, bad price: 3"; reasons with no rows are left out. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Reason r : Reason.values()) {
+            if (counts[r.ordinal()] == 0) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(r.label).append(": ").append(counts[r.ordinal()]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free queue over a preallocated array (Vyukov's design): every slot carries a
+ * sequence number that says whether it is ready to be written or read for the current lap,
+ * so producers and consumers each claim a slot with one CAS and never share a lock. Safe for
+ * any number of producers and consumers; the pipeline uses it single-producer/multi-consumer
+ * and the reverse.
+ *
+ * <p>{@link #put} and {@link #take} wait by spinning briefly, then yielding, then parking, and
+ * give up with InterruptedException when the thread is interrupted, or with
+ * CancellationException once the ring is {@link #cancel() cancelled}. A full ring is the
+ * backpressure: the producer simply waits.
+ */
+final class RingBuffer<T> {
+    // spinning only helps when the other side runs on another core
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
+
+    private final int mask;
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile boolean cancelled;
+
+    /** {@code capacity} is rounded up to a power of two. */
+    RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("capacity must be in [1, 2^30]");
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        items = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /** Adds {@code item} unless the ring is full. */
+    boolean offer(T item) {
+        long pos = tail.get();
+        while (true) {
+            int i = (int) pos & mask;
+            long d = sequences.get(i) - pos;
+            if (d == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items[i] = item;
+                    sequences.set(i, pos + 1); // publishes the item to consumers
+                    return true;
+                }
+                pos = tail.get();
+            } else if (d < 0) {
+                return false; // the slot still holds an item from the previous lap
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /** Removes the oldest item, or returns null when the ring is empty. */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long pos = head.get();
+        while (true) {
+            int i = (int) pos & mask;
+            long d = sequences.get(i) - (pos + 1);
+            if (d == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    T item = (T) items[i];
+                    items[i] = null;
+                    sequences.set(i, pos + mask + 1); // free for the producer's next lap
+                    return item;
+                }
+                pos = head.get();
+            } else if (d < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    void put(T item) throws InterruptedException {
+        checkCancelled();
+        for (int spins = 0; !offer(item); spins++) idle(spins);
+    }
+
+    T take() throws InterruptedException {
+        checkCancelled();
+        T item;
+        for (int spins = 0; (item = poll()) == null; spins++) idle(spins);
+        return item;
+    }
+
+    /**
+     * Wakes every thread waiting in put or take, and fails every later call, with
+     * CancellationException. Lets a pipeline stop its stages without interrupting them.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException();
+    }
+
+    private void idle(int spins) throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+        checkCancelled();
+        if (spins < SPINS) {
+            Thread.onSpinWait();
+        } else if (spins < SPINS + 64) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RingBufferTest {
+    @Test
+    public void testBoundedFifo() {
+        RingBuffer<Integer> ring = new RingBuffer<>(3);
+        assertEquals(4, ring.capacity());
+        for (int i = 0; i < 4; i++) assertTrue(ring.offer(i));
+        assertFalse(ring.offer(4));
+        assertEquals(Integer.valueOf(0), ring.poll());
+        assertTrue(ring.offer(4));
+        for (int i = 1; i <= 4; i++) assertEquals(Integer.valueOf(i), ring.poll());
+        assertNull(ring.poll());
+    }
+
+    @Test
+    public void testEveryItemTakenOnceAcrossThreads() throws Exception {
+        RingBuffer<Long> ring = new RingBuffer<>(8);
+        int producers = 3, consumers = 3, perProducer = 100_000;
+        AtomicLong sum = new AtomicLong(), count = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (long i = 1; i <= perProducer; i++) ring.put(i);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (long v; (v = ring.take()) != 0; ) {
+                        sum.addAndGet(v);
+                        count.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads.subList(0, producers)) t.join();
+        for (int c = 0; c < consumers; c++) ring.put(0L);
+        for (Thread t : threads) t.join();
+        assertEquals((long) producers * perProducer, count.get());
+        assertEquals((long) producers * perProducer * (perProducer + 1) / 2, sum.get());
+    }
+
+    @Test
+    public void testCancelWakesWaitingThreads() throws Exception {
+        RingBuffer<Integer> ring = new RingBuffer<>(1);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread taker = new Thread(() -> {
+            try {
+                ring.take();
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        taker.start();
+        Thread.sleep(50);
+        ring.cancel();
+        taker.join(5000);
+        assertTrue(thrown.get() instanceof CancellationException);
+        try {
+            ring.put(1);
+            fail();
+        } catch (CancellationException expected) {
+            // later calls fail too
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.Consumer;
+
+/**
+ * The sequential scan of MappedOrderFile for inputs that cannot be mapped, such as pipes:
+ * the channel is read into one reusable buffer and its complete lines are parsed in place.
+ */
+final class StreamedOrderFile {
+    static final int BUFFER = 1 << 20;
+
+    private StreamedOrderFile() {}
+
+    /**
+     * Feeds {@code sink} the valid rows read from {@code in} whose total is at least
+     * {@code minTotalCents}. Returns the number of valid rows, including those filtered out.
+     */
+    static long forEach(ReadableByteChannel in, int columns, long minTotalCents, Consumer<Order> sink,
+                        RejectCounts rejects) throws IOException {
+        return scan(in, columns, minTotalCents, rejects, (parser, buf, from, to) -> parser.parse(buf, from, to, sink));
+    }
+
+    /** Same contract as MappedOrderFile's scan; returns the number of valid rows. */
+    static long scan(ReadableByteChannel in, int columns, long minTotalCents, RejectCounts rejects,
+                     MappedOrderFile.WindowParser target) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER);
+        OrderCsvParser parser = null;
+        boolean eof = false;
+        while (!eof) {
+            eof = in.read(buf) < 0;
+            int end = buf.position();
+            if (!eof && buf.hasRemaining()) continue;
+            int from = 0;
+            if (parser == null) {
+                int nl = OrderCsvParser.indexOf(buf, OrderCsvParser.LF, 0, end);
+                if (nl < 0 && !eof) {
+                    buf = grow(buf);
+                    continue;
+                }
+                if (end == 0) throw new IllegalArgumentException("Empty file");
+                int headerEnd = nl < 0 ? end : nl;
+                String[] header = OrderCsvParser.parseHeader(buf, 0, headerEnd);
+                parser = new OrderCsvParser(new ColumnPlan(header, columns), rejects, minTotalCents);
+                from = nl < 0 ? end : nl + 1;
+                target.header(buf, 0, from);
+            }
+            int limit = eof ? end : OrderCsvParser.lastIndexOf(buf, OrderCsvParser.LF, from, end) + 1;
+            if (limit > from) target.parse(parser, buf, from, limit);
+            // keep the partial last line for the next read
+            buf.limit(end).position(Math.max(from, limit));
+            buf.compact();
+            if (!buf.hasRemaining()) buf = grow(buf);
+        }
+        return parser.validRows();
+    }
+
+    private static ByteBuffer grow(ByteBuffer buf) {
+        ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+        buf.flip();
+        return bigger.put(buf);
+    }
+}
@@ -0,0 +1,194 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Single-pass form of OrderProcessor.aggregate: each order costs one totalCents() call and
+ * one map lookup, and memory grows with the number of categories, not orders.
+ *
+ * <p>Accumulators are partial summaries: merging the partials of consecutive slices, in
+ * order, gives exactly the accumulator of the whole input (categories keep first-seen order).
+ *
+ * <p>Sums live in longs; when adding to one would overflow, the old value moves into a
+ * BigInteger spill and the long starts over, so valid rows never fail the run.
+ */
+final class SummaryAccumulator implements Consumer<Order> {
+    private static final int COUNT = 0, CENTS = 1;
+
+    private long revenueCents;
+    private long count;
+    private final Map<String, long[]> byCategory = new LinkedHashMap<>();
+    // the part of each sum that no longer fit its long; empty unless a sum overflowed
+    private BigInteger revenueSpill = BigInteger.ZERO;
+    private final Map<String, BigInteger> categorySpill = new HashMap<>();
+
+    @Override
+    public void accept(Order o) {
+        add(o.getCategory(), 1, o.totalCents());
+    }
+
+    /** Adds {@code count} orders of {@code category} totalling {@code cents}. */
+    void add(String category, long count, long cents) {
+        if (Money.sumOverflows(revenueCents, cents)) {
+            revenueSpill = revenueSpill.add(BigInteger.valueOf(revenueCents));
+            revenueCents = 0;
+        }
+        revenueCents += cents;
+        this.count += count;
+        long[] c = byCategory.get(category);
+        if (c == null) byCategory.put(category, c = new long[2]);
+        c[COUNT] += count;
+        if (Money.sumOverflows(c[CENTS], cents)) {
+            categorySpill.merge(category, BigInteger.valueOf(c[CENTS]), BigInteger::add);
+            c[CENTS] = 0;
+        }
+        c[CENTS] += cents;
+    }
+
+    /** {@link #add(String, long, long)} for a total that may not fit in a long. */
+    void add(String category, long count, BigInteger cents) {
+        if (cents.bitLength() < Long.SIZE) {
+            add(category, count, cents.longValue());
+            return;
+        }
+        add(category, count, 0);
+        revenueSpill = revenueSpill.add(cents);
+        categorySpill.merge(category, cents, BigInteger::add);
+    }
+
+    SummaryAccumulator addAll(List<Order> orders) {
+        for (Order o : orders) accept(o);
+        return this;
+    }
+
+    /** Folds {@code other} in as if its orders had been accepted after this one's. */
+    SummaryAccumulator merge(SummaryAccumulator other) {
+        for (Map.Entry<String, long[]> e : other.byCategory.entrySet()) {
+            add(e.getKey(), e.getValue()[COUNT], e.getValue()[CENTS]);
+            BigInteger spill = other.categorySpill.get(e.getKey());
+            if (spill != null) add(e.getKey(), 0, spill);
+        }
+        return this;
+    }
+
+    long count() {
+        return count;
+    }
+
+    /** Exact revenue in cents. */
+    BigInteger revenueCents() {
+        return revenueSpill.add(BigInteger.valueOf(revenueCents));
+    }
+
+    /** Categories in first-seen order. */
+    Set<String> categories() {
+        return Collections.unmodifiableSet(byCategory.keySet());
+    }
+
+    long categoryCount(String category) {
+        long[] c = byCategory.get(category);
+        return c == null ? 0 : c[COUNT];
+    }
+
+    BigInteger categoryRevenueCents(String category) {
+        long[] c = byCategory.get(category);
+        return c == null ? BigInteger.ZERO : exactCents(category, c);
+    }
+
+    private BigInteger exactCents(String category, long[] c) {
+        BigInteger spill = categorySpill.get(category);
+        BigInteger cents = BigInteger.valueOf(c[CENTS]);
+        return spill == null ? cents : spill.add(cents);
+    }
+
+    /**
+     * Per-category name, orders and revenue_cents in first-seen order: the exact state, for
+     * persisting between runs. {@link #fromCategories} reads it back.
+     */
+    List<Map<String, Object>> toCategories() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Map.Entry<String, long[]> e : byCategory.entrySet()) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("name", e.getKey());
+            m.put("orders", e.getValue()[COUNT]);
+            // a plain long unless the sum overflowed one
+            Number cents = categorySpill.containsKey(e.getKey())
+                    ? exactCents(e.getKey(), e.getValue()) : (Number) e.getValue()[CENTS];
+            m.put("revenue_cents", cents);
+            list.add(m);
+        }
+        return list;
+    }
+
+    /** Inverse of {@link #toCategories} for the maps JsonReader returns. */
+    static SummaryAccumulator fromCategories(List<?> categories) {
+        SummaryAccumulator acc = new SummaryAccumulator();
+        for (Object o : categories) {
+            Map<?, ?> c = (Map<?, ?>) o;
+            acc.add((String) c.get("name"), ((BigDecimal) c.get("orders")).longValueExact(),
+                    ((BigDecimal) c.get("revenue_cents")).toBigIntegerExact());
+        }
+        return acc;
+    }
+
+    /** Highest-revenue category, ties broken alphabetically; null when empty. */
+    String topCategory() {
+        if (!categorySpill.isEmpty()) return topCategoryExact();
+        String top = null;
+        long topCents = 0;
+        boolean first = true;
+        for (Map.Entry<String, long[]> e : byCategory.entrySet()) {
+            String cat = e.getKey();
+            long cents = e.getValue()[CENTS];
+            if (first || cents > topCents || cents == topCents && compare(cat, top) < 0) {
+                top = cat;
+                topCents = cents;
+                first = false;
+            }
+        }
+        return top;
+    }
+
+    // topCategory once some category's revenue no longer fits in a long
+    private String topCategoryExact() {
+        String top = null;
+        BigInteger topCents = null;
+        for (Map.Entry<String, long[]> e : byCategory.entrySet()) {
+            String cat = e.getKey();
+            BigInteger cents = exactCents(cat, e.getValue());
+            int cmp = topCents == null ? 1 : cents.compareTo(topCents);
+            if (cmp > 0 || cmp == 0 && compare(cat, top) < 0) {
+                top = cat;
+                topCents = cents;
+            }
+        }
+        return top;
+    }
+
+    Map<String, Object> toSummary() {
+        double totalRevenue = revenueSpill.signum() == 0
+                ? Money.toDouble(revenueCents) : new BigDecimal(revenueCents(), 2).doubleValue();
+        double aov = count == 0 ? 0.0 : OrderProcessor.round2(totalRevenue / count);
+        // a HashMap filled in first-seen order iterates exactly like the old groupingBy result
+        Map<String, Long> perCat = new HashMap<>();
+        for (Map.Entry<String, long[]> e : byCategory.entrySet()) perCat.put(e.getKey(), e.getValue()[COUNT]);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("total_revenue", totalRevenue);
+        summary.put("average_order_value", aov);
+        summary.put("orders_per_category", perCat);
+        summary.put("top_category_by_revenue", topCategory());
+        return summary;
+    }
+
+    // alphabetical tie-break; rows without a category group under null, which sorts first
+    private static int compare(String a, String b) {
+        return a == null ? -1 : b == null ? 1 : a.compareTo(b);
+    }
+}
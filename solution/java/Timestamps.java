@@ -0,0 +1,97 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/** Epoch-second form of the canonical order timestamp, e.g. 2025-03-01T10:15:00Z. */
+final class Timestamps {
+    static final long NONE = Long.MIN_VALUE;
+
+    private static final int LENGTH = "2025-03-01T10:15:00Z".length();
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private Timestamps() {}
+
+    /**
+     * Epoch seconds for text of exactly the form yyyy-MM-ddTHH:mm:ssZ, or {@link #NONE} for
+     * anything else; for every accepted value {@link #format} gives back the same text.
+     */
+    static long parse(CharSequence s) {
+        if (s == null || s.length() != LENGTH) return NONE;
+        return parse(ByteBuffer.wrap(s.toString().getBytes(StandardCharsets.ISO_8859_1)), 0, LENGTH);
+    }
+
+    static long parse(ByteBuffer buf, int from, int to) {
+        if (to - from != LENGTH) return NONE;
+        if (buf.get(from + 4) != '-' || buf.get(from + 7) != '-' || buf.get(from + 10) != 'T'
+                || buf.get(from + 13) != ':' || buf.get(from + 16) != ':' || buf.get(from + 19) != 'Z') return NONE;
+        int year = digits(buf, from, 4), month = digits(buf, from + 5, 2), day = digits(buf, from + 8, 2);
+        int hour = digits(buf, from + 11, 2), minute = digits(buf, from + 14, 2), second = digits(buf, from + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59) return NONE;
+        boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+        if (day > DAYS_IN_MONTH[month - 1] + (month == 2 && leap ? 1 : 0)) return NONE;
+        return epochDay(year, month, day) * 86400L + hour * 3600 + minute * 60 + second;
+    }
+
+    static String format(long epochSecond) {
+        return Instant.ofEpochSecond(epochSecond).toString();
+    }
+
+    /**
+     * Writes the {@link #format} text of {@code epochSecond} into {@code out} at {@code at}
+     * without allocating; returns the position after it. Years 0 through 9999 only.
+     */
+    static int format(long epochSecond, byte[] out, int at) {
+        long days = Math.floorDiv(epochSecond, 86400L);
+        int secs = (int) Math.floorMod(epochSecond, 86400L);
+        // civil date from days since 1970-01-01, the inverse of epochDay
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) throw new IllegalArgumentException("Year out of range: " + year);
+        at = digits((int) year, 4, out, at);
+        out[at++] = '-';
+        at = digits(month, 2, out, at);
+        out[at++] = '-';
+        at = digits(day, 2, out, at);
+        out[at++] = 'T';
+        at = digits(secs / 3600, 2, out, at);
+        out[at++] = ':';
+        at = digits(secs / 60 % 60, 2, out, at);
+        out[at++] = ':';
+        at = digits(secs % 60, 2, out, at);
+        out[at++] = 'Z';
+        return at;
+    }
+
+    private static int digits(int v, int len, byte[] out, int at) {
+        for (int i = at + len - 1; i >= at; i--, v /= 10) out[i] = (byte) ('0' + v % 10);
+        return at + len;
+    }
+
+    private static int digits(ByteBuffer buf, int from, int len) {
+        int v = 0;
+        for (int i = from; i < from + len; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    // days since 1970-01-01 in the proleptic Gregorian calendar
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+}
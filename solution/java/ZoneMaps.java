@@ -0,0 +1,90 @@
+import java.util.Arrays;
+
+/**
+ * Per-block min/max of unit price, quantity, order total and timestamp over columnar orders,
+ * {@link #BLOCK_ROWS} rows to a block. A query first asks whether a block can hold a match at
+ * all and skips the block's rows when it cannot. Rows without a parseable timestamp are left
+ * out of the timestamp range, so a block holding only those has an empty one.
+ */
+final class ZoneMaps {
+    static final int BLOCK_ROWS = 1 << 16;
+    static final int PRICE = 0, QUANTITY = 1, TOTAL = 2, TIMESTAMP = 3;
+    static final int FIELDS = 4;
+
+    private long[] min = new long[0];
+    private long[] max = new long[0];
+    private int blocks;
+
+    ZoneMaps() {}
+
+    /** Empty maps for {@code blocks} blocks, to be filled with {@link #set}. */
+    ZoneMaps(int blocks) {
+        grow(blocks);
+        this.blocks = blocks;
+    }
+
+    int blocks() {
+        return blocks;
+    }
+
+    /** Widens row {@code row}'s block to cover the row; rows arrive in order. */
+    void add(int row, long minPriceCents, long maxPriceCents, int quantity, long totalCents, long epochSecond) {
+        int b = row / BLOCK_ROWS;
+        if (b == blocks) {
+            if (b * FIELDS == min.length) grow(Math.max(4, 2 * blocks));
+            blocks++;
+        }
+        widen(b, PRICE, minPriceCents, maxPriceCents);
+        widen(b, QUANTITY, quantity, quantity);
+        widen(b, TOTAL, totalCents, totalCents);
+        if (epochSecond != Timestamps.NONE) widen(b, TIMESTAMP, epochSecond, epochSecond);
+    }
+
+    long min(int block, int field) {
+        return min[block * FIELDS + field];
+    }
+
+    long max(int block, int field) {
+        return max[block * FIELDS + field];
+    }
+
+    void set(int block, int field, long min, long max) {
+        this.min[block * FIELDS + field] = min;
+        this.max[block * FIELDS + field] = max;
+    }
+
+    /** Whether block {@code block} may hold a row with {@code totalCents >= thresholdCents}. */
+    boolean mayReachTotal(int block, long thresholdCents) {
+        return max(block, TOTAL) >= thresholdCents;
+    }
+
+    /** Whether block {@code block} may hold a row timestamped in [{@code from}, {@code to}). */
+    boolean mayOverlapTime(int block, long from, long to) {
+        return max(block, TIMESTAMP) >= from && min(block, TIMESTAMP) < to;
+    }
+
+    private void widen(int b, int field, long lo, long hi) {
+        int i = b * FIELDS + field;
+        if (lo < min[i]) min[i] = lo;
+        if (hi > max[i]) max[i] = hi;
+    }
+
+    private void grow(int capacity) {
+        int from = min.length;
+        min = Arrays.copyOf(min, capacity * FIELDS);
+        max = Arrays.copyOf(max, capacity * FIELDS);
+        Arrays.fill(min, from, min.length, Long.MAX_VALUE);
+        Arrays.fill(max, from, max.length, Long.MIN_VALUE);
+    }
+
+    /** How many blocks a query read and how many its zone maps let it skip. */
+    static final class Scans {
+        long scanned, skipped;
+
+        /** e.g. "scanned 3 of 153 blocks, skipped 150". */
+        @Override
+        public String toString() {
+            return "scanned " + scanned + " of " + (scanned + skipped) + " blocks, skipped " + skipped;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class ZoneMapsTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testQueriesSkipBlocksThatCannotMatch() throws Exception {
+        // three blocks of one-second-apart orders; only the middle one holds an expensive order
+        Path csv = tmp.getRoot().toPath().resolve("orders.csv");
+        StringBuilder sb = new StringBuilder("order_id,customer_id,category,unit_price,quantity,timestamp\n");
+        int rows = 3 * ZoneMaps.BLOCK_ROWS;
+        for (int i = 0; i < rows; i++) {
+            String price = i == ZoneMaps.BLOCK_ROWS + 7 ? "900.00" : "1.25";
+            sb.append("O").append(i).append(",C1,Toys,").append(price).append(",2,")
+                    .append(Timestamps.format(1_700_000_000L + i)).append('\n');
+        }
+        Files.writeString(csv, sb);
+        OrderColumns parsed = OrderColumnFile.load(csv, new RejectCounts());
+        OrderColumns mapped = OrderColumnFile.load(csv, new RejectCounts());
+        assertTrue(mapped instanceof OrderColumnFile);
+
+        for (OrderColumns batch : Arrays.asList(parsed, mapped)) {
+            ZoneMaps.Scans scans = new ZoneMaps.Scans();
+            List<Order> high = batch.filterHighValue(100_000, scans);
+            assertEquals(1, high.size());
+            assertEquals("O" + (ZoneMaps.BLOCK_ROWS + 7), high.get(0).getOrderId());
+            assertEquals("scanned 1 of 3 blocks, skipped 2", scans.toString());
+
+            scans = new ZoneMaps.Scans();
+            long from = 1_700_000_000L + 2L * ZoneMaps.BLOCK_ROWS + 10;
+            List<Order> window = batch.between(from, from + 5, scans);
+            assertEquals(5, window.size());
+            assertEquals(Timestamps.format(from), window.get(0).getTimestamp());
+            assertEquals(1, scans.scanned);
+            assertEquals(2, scans.skipped);
+
+            // a threshold every block can reach skips nothing and keeps every row
+            scans = new ZoneMaps.Scans();
+            assertEquals(rows, batch.filterHighValue(250, scans).size());
+            assertEquals(0, scans.skipped);
+        }
+    }
+
+    @Test
+    public void testOutOfRangeSubCentPricesClampTheirZone() throws Exception {
+        // quantity 0 keeps the totals at zero, so these rows are valid however large the price
+        Path csv = tmp.getRoot().toPath().resolve("orders.csv");
+        Files.writeString(csv, "order_id,customer_id,category,unit_price,quantity,timestamp\n"
+                + "O1,C1,Books,1000000000000000000000000.001,0,2025-03-01T10:15:00Z\n"
+                + "O2,C1,Books,-1000000000000000000000000.001,0,2025-03-01T10:15:00Z\n"
+                + "O3,C1,Books,1.25,4,2025-03-01T10:15:00Z\n");
+        OrderColumns parsed = OrderColumnFile.load(csv, new RejectCounts());
+        OrderColumns mapped = OrderColumnFile.load(csv, new RejectCounts());
+        assertTrue(mapped instanceof OrderColumnFile);
+        for (OrderColumns batch : Arrays.asList(parsed, mapped)) {
+            assertEquals(3, batch.size());
+            assertEquals(1, batch.filterHighValue(500, new ZoneMaps.Scans()).size());
+        }
+        ZoneMaps zones = ((OrderBatch) parsed).zones();
+        assertEquals(Long.MIN_VALUE, zones.min(0, ZoneMaps.PRICE));
+        assertEquals(Long.MAX_VALUE, zones.max(0, ZoneMaps.PRICE));
+    }
+}
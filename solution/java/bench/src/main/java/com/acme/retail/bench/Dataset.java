@@ -0,0 +1,115 @@
+package com.acme.retail.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * One synthetic orders.csv per row count, plus every intermediate the later stages consume, so
+ * each benchmark measures its own stage only. The same seed gives the same file on every run.
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+    static final String HEADER = "order_id,customer_id,category,unit_price,quantity,timestamp";
+    static final String[] CATEGORIES = {"Books", "Electronics", "Toys", "Clothing", "Home & Garden"};
+    static final BigDecimal THRESHOLD = new BigDecimal("100.0");
+    private static final long SEED = 42;
+    private static final long START = Instant.parse("2025-03-01T00:00:00Z").getEpochSecond();
+    private static final long WINDOW = 1L << 30;
+
+    @Param({"1000", "1000000", "50000000"})
+    public int rows;
+
+    Path dir;
+    Path csv;
+    String[] header;
+    /** The data rows, mapped in windows that end on a line break. */
+    List<ByteBuffer> windows;
+    List<?> orders;
+    Map<?, ?> summary;
+    List<?> highValue;
+    Path summaryOut;
+    Path highValueOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        dir = Files.createTempDirectory("order-bench");
+        csv = dir.resolve("orders.csv");
+        write(csv, rows);
+        header = HEADER.split(",");
+        windows = map(csv, HEADER.length() + 1);
+        orders = (List<?>) Stages.LOAD_ORDERS.invokeExact(csv.toString());
+        summary = (Map<?, ?>) Stages.AGGREGATE.invokeExact((List<?>) orders);
+        highValue = (List<?>) Stages.FILTER_HIGH_VALUE.invokeExact((List<?>) orders, THRESHOLD);
+        summaryOut = dir.resolve("summary.json");
+        highValueOut = dir.resolve("high_value_orders.csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        windows = null;
+        orders = null;
+        highValue = null;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.deleteIfExists(p);
+        }
+    }
+
+    static void write(Path path, int rows) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(SEED);
+        try (BufferedWriter w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            w.write(HEADER);
+            w.newLine();
+            StringBuilder sb = new StringBuilder(96);
+            for (int i = 0; i < rows; i++) {
+                int cents = rnd.nextInt(100, 50_001);
+                sb.setLength(0);
+                sb.append("O-").append(i)
+                        .append(",C-").append(rnd.nextInt(100_000))
+                        .append(',').append(CATEGORIES[rnd.nextInt(CATEGORIES.length)])
+                        .append(',').append(cents / 100).append('.').append(cents % 100 < 10 ? "0" : "").append(cents % 100)
+                        .append(',').append(rnd.nextInt(1, 6))
+                        .append(',').append(Instant.ofEpochSecond(START + i));
+                w.append(sb);
+                w.newLine();
+            }
+        }
+    }
+
+    private static List<ByteBuffer> map(Path path, long dataStart) throws IOException {
+        List<ByteBuffer> out = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            for (long pos = dataStart; pos < size; ) {
+                ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, size - pos));
+                int limit = buf.limit();
+                if (pos + limit < size) {
+                    while (buf.get(limit - 1) != '\n') limit--;
+                }
+                out.add(buf.limit(limit));
+                pos += limit;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,69 @@
+package com.acme.retail.bench;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * One benchmark per OrderProcessor stage, each over the whole dataset: an operation is one
+ * full pass, so throughput is passes per second and gc.alloc.rate.norm is bytes per pass.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StageBenchmarks {
+
+    @Benchmark
+    public List<?> loadOrders(Dataset d) throws Throwable {
+        return (List<?>) Stages.LOAD_ORDERS.invokeExact(d.csv.toString());
+    }
+
+    /** Row decoding on already-mapped input; this is the work mapRow used to do. */
+    @Benchmark
+    public int parseRows(Dataset d, Blackhole bh) throws Throwable {
+        Object parser = Stages.NEW_PARSER.invokeExact(d.header);
+        Consumer<Object> sink = bh::consume;
+        int n = 0;
+        for (ByteBuffer w : d.windows) n += (int) Stages.PARSE.invokeExact(parser, w, 0, w.limit(), (Consumer<?>) sink);
+        return n;
+    }
+
+    @Benchmark
+    public Map<?, ?> aggregate(Dataset d) throws Throwable {
+        return (Map<?, ?>) Stages.AGGREGATE.invokeExact((List<?>) d.orders);
+    }
+
+    @Benchmark
+    public List<?> filterHighValue(Dataset d) throws Throwable {
+        return (List<?>) Stages.FILTER_HIGH_VALUE.invokeExact((List<?>) d.orders, Dataset.THRESHOLD);
+    }
+
+    @Benchmark
+    public void writeSummary(Dataset d) throws Throwable {
+        Stages.WRITE_SUMMARY.invokeExact(d.summaryOut.toString(), (Map<?, ?>) d.summary);
+    }
+
+    @Benchmark
+    public void writeHighValueCsv(Dataset d) throws Throwable {
+        Stages.WRITE_HIGH_VALUE_CSV.invokeExact(d.highValueOut.toString(), (List<?>) d.highValue);
+    }
+
+    @Benchmark
+    public void orderTotal(Dataset d, Blackhole bh) throws Throwable {
+        for (Object o : d.orders) bh.consume((BigDecimal) Stages.TOTAL.invokeExact(o));
+    }
+}
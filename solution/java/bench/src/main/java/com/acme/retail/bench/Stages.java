@@ -0,0 +1,68 @@
+package com.acme.retail.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Handles on the application's stages. The application lives in the default package, which a
+ * named package cannot import, and JMH will not run benchmarks from the default package; the
+ * handles are static finals typed for invokeExact, so the JIT inlines them like direct calls.
+ * Application types such as Order and OrderCsvParser appear here as Object.
+ */
+final class Stages {
+    /** OrderProcessor.loadOrders(String) */
+    static final MethodHandle LOAD_ORDERS;
+    /** new OrderCsvParser(String[] header) */
+    static final MethodHandle NEW_PARSER;
+    /** OrderCsvParser.parse(ByteBuffer, int, int, Consumer), the per-row decode that replaced mapRow */
+    static final MethodHandle PARSE;
+    /** OrderProcessor.aggregate(List) */
+    static final MethodHandle AGGREGATE;
+    /** OrderProcessor.filterHighValue(List, BigDecimal) */
+    static final MethodHandle FILTER_HIGH_VALUE;
+    /** OrderProcessor.writeSummary(String, Map) */
+    static final MethodHandle WRITE_SUMMARY;
+    /** OrderProcessor.writeHighValueCsv(String, List) */
+    static final MethodHandle WRITE_HIGH_VALUE_CSV;
+    /** Order.total() */
+    static final MethodHandle TOTAL;
+
+    static {
+        try {
+            Class<?> processor = Class.forName("OrderProcessor");
+            Class<?> parser = Class.forName("OrderCsvParser");
+            Class<?> order = Class.forName("Order");
+            LOAD_ORDERS = find(processor, "loadOrders", MethodType.methodType(List.class, String.class));
+            NEW_PARSER = lookup(parser).findConstructor(parser, MethodType.methodType(void.class, String[].class))
+                    .asType(MethodType.methodType(Object.class, String[].class));
+            PARSE = lookup(parser).findVirtual(parser, "parse",
+                            MethodType.methodType(int.class, ByteBuffer.class, int.class, int.class, Consumer.class))
+                    .asType(MethodType.methodType(int.class, Object.class, ByteBuffer.class, int.class, int.class, Consumer.class));
+            AGGREGATE = find(processor, "aggregate", MethodType.methodType(Map.class, List.class));
+            FILTER_HIGH_VALUE = find(processor, "filterHighValue", MethodType.methodType(List.class, List.class, BigDecimal.class));
+            WRITE_SUMMARY = find(processor, "writeSummary", MethodType.methodType(void.class, String.class, Map.class));
+            WRITE_HIGH_VALUE_CSV = find(processor, "writeHighValueCsv", MethodType.methodType(void.class, String.class, List.class));
+            TOTAL = lookup(order).findVirtual(order, "total", MethodType.methodType(BigDecimal.class))
+                    .asType(MethodType.methodType(BigDecimal.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Stages() {}
+
+    private static MethodHandle find(Class<?> owner, String name, MethodType type) throws ReflectiveOperationException {
+        return lookup(owner).findStatic(owner, name, type);
+    }
+
+    // both sides are in the unnamed module, so package-private members are reachable this way
+    private static MethodHandles.Lookup lookup(Class<?> target) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(target, MethodHandles.lookup());
+    }
+}